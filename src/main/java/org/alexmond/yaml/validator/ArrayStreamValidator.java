@@ -0,0 +1,192 @@
+package org.alexmond.yaml.validator;
+
+import com.networknt.schema.OutputFormat;
+import com.networknt.schema.Schema;
+import com.networknt.schema.output.OutputUnit;
+import org.alexmond.yaml.validator.schema.ArraySchema;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Validates a top-level array read from a token stream one element at a time, so memory
+ * depends on the largest element rather than the whole array. Each element is validated
+ * as a one-element array against the {@link ArraySchema#elementSchema() element schema}
+ * and the reported instance locations are moved from {@code /0} to the element's index and
+ * the schema locations back to the root schema;
+ * {@code minItems} and {@code maxItems} are checked against the count at the end, and
+ * {@code uniqueItems} against a set of SHA-256 digests of the elements seen, which holds
+ * 16 bytes per element instead of the element.
+ */
+final class ArrayStreamValidator {
+
+	private static final String FIRST_ELEMENT = "/0";
+
+	private final ObjectMapper mapper;
+
+	private final ArraySchema arraySchema;
+
+	private final List<OutputUnit> details = new ArrayList<>();
+
+	private final Set<Digest> seen = new HashSet<>();
+
+	private final MessageDigest messageDigest;
+
+	private boolean duplicate;
+
+	private ArrayStreamValidator(ObjectMapper mapper, ArraySchema arraySchema) {
+		this.mapper = mapper;
+		this.arraySchema = arraySchema;
+		try {
+			this.messageDigest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not available", ex);
+		}
+	}
+
+	/**
+	 * Validates the array the parser is positioned at, reading up to its end.
+	 * @param parser the parser, at the {@code START_ARRAY} token of the array
+	 * @param mapper the mapper reading each element
+	 * @param arraySchema the schema of the array
+	 * @return the validation output, in the {@code LIST} form of validating the whole
+	 * array
+	 */
+	static OutputUnit validate(JsonParser parser, ObjectMapper mapper, ArraySchema arraySchema) {
+		return new ArrayStreamValidator(mapper, arraySchema).validate(parser);
+	}
+
+	private OutputUnit validate(JsonParser parser) {
+		long count = 0;
+		for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY
+				&& token != null; token = parser.nextToken()) {
+			validateElement(count, this.mapper.readTree(parser));
+			count++;
+		}
+		Integer minItems = this.arraySchema.minItems();
+		Integer maxItems = this.arraySchema.maxItems();
+		if (minItems != null && count < minItems) {
+			addError("minItems", "must have at least " + minItems + " items but found " + count);
+		}
+		if (maxItems != null && count > maxItems) {
+			addError("maxItems", "must have at most " + maxItems + " items but found " + count);
+		}
+		if (this.duplicate) {
+			addError("uniqueItems", "must have only unique items in the array");
+		}
+		OutputUnit outputUnit = new OutputUnit();
+		outputUnit.setValid(this.details.isEmpty());
+		if (!this.details.isEmpty()) {
+			outputUnit.setDetails(this.details);
+		}
+		return outputUnit;
+	}
+
+	private void validateElement(long index, JsonNode element) {
+		JsonNode single = this.mapper.createArrayNode().add(element);
+		Schema schema = this.arraySchema.elementSchema();
+		if (!Boolean.TRUE.equals(schema.validate(single, OutputFormat.BOOLEAN))) {
+			OutputUnit outputUnit = schema.validate(single, OutputFormat.LIST);
+			if (outputUnit.getDetails() != null) {
+				for (OutputUnit detail : outputUnit.getDetails()) {
+					String location = detail.getInstanceLocation();
+					if (location != null && (location.equals(FIRST_ELEMENT)
+							|| location.startsWith(FIRST_ELEMENT + "/"))) {
+						detail.setInstanceLocation("/" + index + location.substring(FIRST_ELEMENT.length()));
+					}
+					detail.setSchemaLocation(this.arraySchema.rootLocation(detail.getSchemaLocation()));
+					this.details.add(detail);
+				}
+			}
+		}
+		if (this.arraySchema.uniqueItems() && !this.duplicate) {
+			this.duplicate = !this.seen.add(digest(element));
+		}
+	}
+
+	private void addError(String keyword, String message) {
+		OutputUnit outputUnit = new OutputUnit();
+		outputUnit.setValid(false);
+		outputUnit.setEvaluationPath("/" + keyword);
+		outputUnit.setSchemaLocation(this.arraySchema.schemaLocation() + "/" + keyword);
+		outputUnit.setInstanceLocation("");
+		outputUnit.setErrors(Map.of(keyword, message));
+		this.details.add(outputUnit);
+	}
+
+	private Digest digest(JsonNode element) {
+		this.messageDigest.reset();
+		update(element);
+		ByteBuffer hash = ByteBuffer.wrap(this.messageDigest.digest());
+		return new Digest(hash.getLong(), hash.getLong());
+	}
+
+	/**
+	 * Feeds a canonical form of a node to the digest: object properties in name order and
+	 * numbers by value, so elements the {@code uniqueItems} keyword treats as equal
+	 * ({@code 1} and {@code 1.0}, or the same properties in another order) digest alike.
+	 * @param node the node to add
+	 */
+	private void update(JsonNode node) {
+		if (node.isObject()) {
+			Map<String, JsonNode> properties = new TreeMap<>();
+			node.properties().forEach((property) -> properties.put(property.getKey(), property.getValue()));
+			this.messageDigest.update((byte) '{');
+			for (Map.Entry<String, JsonNode> property : properties.entrySet()) {
+				updateString(property.getKey());
+				update(property.getValue());
+			}
+			this.messageDigest.update((byte) '}');
+		}
+		else if (node.isArray()) {
+			this.messageDigest.update((byte) '[');
+			for (JsonNode value : node) {
+				update(value);
+			}
+			this.messageDigest.update((byte) ']');
+		}
+		else if (node.isNumber()) {
+			this.messageDigest.update((byte) 'n');
+			updateString(node.decimalValue().stripTrailingZeros().toPlainString());
+		}
+		else if (node.isBoolean()) {
+			this.messageDigest.update((byte) (node.booleanValue() ? 't' : 'f'));
+		}
+		else if (node.isNull()) {
+			this.messageDigest.update((byte) 'z');
+		}
+		else {
+			this.messageDigest.update((byte) 's');
+			updateString(node.asString());
+		}
+	}
+
+	private void updateString(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.messageDigest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+		this.messageDigest.update(bytes);
+	}
+
+	/**
+	 * The first 128 bits of an element's SHA-256 digest.
+	 *
+	 * @param high the first 64 bits
+	 * @param low the next 64 bits
+	 */
+	private record Digest(long high, long low) {
+	}
+
+}
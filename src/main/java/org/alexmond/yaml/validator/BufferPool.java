@@ -0,0 +1,75 @@
+package org.alexmond.yaml.validator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of reusable byte arrays for reading files below the memory-mapping
+ * threshold, so validating many small files does not allocate a fresh array for each.
+ * Arrays are sized in powers of two; the pool keeps a bounded number of them and never
+ * one larger than its maximum, so it retains at most {@code capacity * maxBufferSize}
+ * bytes.
+ */
+public final class BufferPool {
+
+	private static final int MIN_BUFFER_SIZE = 8192;
+
+	private final int capacity;
+
+	private final int maxBufferSize;
+
+	private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates a pool.
+	 * @param capacity the number of arrays kept for reuse
+	 * @param maxBufferSize the largest array kept for reuse; larger ones are dropped on
+	 * release
+	 */
+	public BufferPool(int capacity, int maxBufferSize) {
+		this.capacity = capacity;
+		this.maxBufferSize = maxBufferSize;
+	}
+
+	/**
+	 * Takes an array of at least the given length from the pool, or allocates one.
+	 * @param length the minimum length
+	 * @return an array of at least {@code length} bytes, with arbitrary content
+	 */
+	public byte[] acquire(int length) {
+		byte[] buffer = this.free.poll();
+		if (buffer != null) {
+			this.size.decrementAndGet();
+			if (buffer.length >= length) {
+				return buffer;
+			}
+		}
+		return new byte[bufferSize(length)];
+	}
+
+	/**
+	 * Returns an array to the pool. It is dropped when the pool is full or the array is
+	 * larger than the maximum.
+	 * @param buffer the array, no longer used by the caller
+	 */
+	public void release(byte[] buffer) {
+		if (buffer.length <= this.maxBufferSize && this.size.incrementAndGet() <= this.capacity) {
+			this.free.offer(buffer);
+		}
+		else if (buffer.length <= this.maxBufferSize) {
+			this.size.decrementAndGet();
+		}
+	}
+
+	private static int bufferSize(int length) {
+		if (length <= MIN_BUFFER_SIZE) {
+			return MIN_BUFFER_SIZE;
+		}
+		int size = Integer.highestOneBit(length - 1) << 1;
+		return (size > 0) ? size : length;
+	}
+
+}
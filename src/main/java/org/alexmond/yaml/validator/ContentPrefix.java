@@ -0,0 +1,94 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.catalog.SchemaDetector;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.TokenStreamContext;
+import tools.jackson.core.util.JsonParserDelegate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the scalar values of the first top-level keys of each document while the
+ * document is parsed, so {@link SchemaDetector#detectLocally(String, Map)} detects its
+ * schema from the streamed prefix, as the schema scan does, instead of from the built
+ * tree. Parsers wrapped by {@link #capture(JsonParser)} record into it, and
+ * {@link #fields()} returns the values of the document read last.
+ */
+final class ContentPrefix {
+
+	private final int keyLimit;
+
+	private Map<String, String> fields = new LinkedHashMap<>();
+
+	/**
+	 * Creates a collector.
+	 * @param keyLimit the number of top-level keys to read the values of, or 0 to
+	 * collect nothing
+	 */
+	ContentPrefix(int keyLimit) {
+		this.keyLimit = keyLimit;
+	}
+
+	/**
+	 * Wraps a parser so that the documents it reads record their key values here.
+	 * @param parser the parser
+	 * @return the recording parser, closing {@code parser} when closed, or {@code parser}
+	 * itself if nothing is collected
+	 */
+	JsonParser capture(JsonParser parser) {
+		return (this.keyLimit > 0) ? new Capture(parser) : parser;
+	}
+
+	/**
+	 * Returns the key values of the document read last. Each document gets a new map, so
+	 * the returned one can be handed to another thread while parsing goes on.
+	 * @return the key values in document order, empty if the document is not an object
+	 */
+	Map<String, String> fields() {
+		return this.fields;
+	}
+
+	/**
+	 * Records a scalar value read directly in a top-level object while its property index
+	 * is below the limit. A token read at the root starts the next document.
+	 */
+	private final class Capture extends JsonParserDelegate {
+
+		Capture(JsonParser parser) {
+			super(parser);
+		}
+
+		@Override
+		public JsonToken nextToken() {
+			boolean documentStart = this.delegate.streamReadContext().inRoot();
+			return record(documentStart, super.nextToken());
+		}
+
+		@Override
+		public JsonToken nextValue() {
+			boolean documentStart = this.delegate.streamReadContext().inRoot();
+			return record(documentStart, super.nextValue());
+		}
+
+		private JsonToken record(boolean documentStart, JsonToken token) {
+			if (token == null) {
+				return null;
+			}
+			if (documentStart) {
+				ContentPrefix.this.fields = new LinkedHashMap<>();
+			}
+			else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+				TokenStreamContext context = this.delegate.streamReadContext();
+				if (context.inObject() && context.getParent().inRoot()
+						&& context.getCurrentIndex() < ContentPrefix.this.keyLimit) {
+					ContentPrefix.this.fields.put(context.currentName(), this.delegate.getString());
+				}
+			}
+			return token;
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+package org.alexmond.yaml.validator;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The content of a regular file, readable as many times as parsing needs without copying
+ * it onto the heap again. Files at or above the mapping threshold are memory-mapped and
+ * parsed straight from the mapped pages, so a large export costs no heap copy of its
+ * bytes; smaller files are read once into an array from a {@link BufferPool}. Files too
+ * large for a single mapping (2 GB and over) are streamed from disk, once per read.
+ * <p>
+ * A mapping is released by the garbage collector rather than on {@link #close()}; closing
+ * returns a pooled array to its pool.
+ */
+public final class FileContent implements Closeable {
+
+	private final Path path;
+
+	private final ByteBuffer mapped;
+
+	private final byte[] buffer;
+
+	private final int length;
+
+	private final BufferPool pool;
+
+	private FileContent(Path path, ByteBuffer mapped, byte[] buffer, int length, BufferPool pool) {
+		this.path = path;
+		this.mapped = mapped;
+		this.buffer = buffer;
+		this.length = length;
+		this.pool = pool;
+	}
+
+	/**
+	 * Opens a regular file for parsing.
+	 * @param path the file
+	 * @param mapThreshold the size in bytes from which the file is memory-mapped
+	 * @param pool the pool providing the array for smaller files
+	 * @return the file content
+	 * @throws IOException if the file cannot be opened or read
+	 */
+	public static FileContent open(Path path, long mapThreshold, BufferPool pool) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return new FileContent(path, null, null, 0, null);
+			}
+			if (size >= mapThreshold) {
+				return new FileContent(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), null, 0, null);
+			}
+			byte[] buffer = pool.acquire((int) size);
+			try {
+				return new FileContent(path, null, buffer, read(channel, buffer, (int) size), pool);
+			}
+			catch (IOException | RuntimeException ex) {
+				pool.release(buffer);
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Tests whether a path can be opened as {@link FileContent}: a regular file, as
+	 * opposed to a pipe or device whose content can only be read once.
+	 * @param path the path
+	 * @return true for a regular file
+	 */
+	public static boolean isSupported(Path path) {
+		return Files.isRegularFile(path);
+	}
+
+	/**
+	 * Opens a new stream over the content, positioned at its start.
+	 * @return the stream; closing it does not close this content
+	 * @throws IOException if a streamed file cannot be reopened
+	 */
+	public InputStream newStream() throws IOException {
+		if (this.mapped != null) {
+			return new ByteBufferInputStream(this.mapped.duplicate());
+		}
+		if (this.buffer != null) {
+			return new ByteArrayInputStream(this.buffer, 0, this.length);
+		}
+		return Files.newInputStream(this.path);
+	}
+
+	/**
+	 * Tests whether the content is memory-mapped.
+	 * @return true if mapped
+	 */
+	public boolean isMapped() {
+		return this.mapped != null;
+	}
+
+	@Override
+	public void close() {
+		if (this.buffer != null) {
+			this.pool.release(this.buffer);
+		}
+	}
+
+	private static int read(FileChannel channel, byte[] buffer, int size) throws IOException {
+		ByteBuffer target = ByteBuffer.wrap(buffer, 0, size);
+		// Stops early at the end of a file that shrank since its size was taken
+		int count = 0;
+		while (target.hasRemaining() && count >= 0) {
+			count = channel.read(target);
+		}
+		return target.position();
+	}
+
+	/**
+	 * An input stream over a byte buffer, reading its remaining bytes.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+			this.buffer.position(this.buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+
+	}
+
+}
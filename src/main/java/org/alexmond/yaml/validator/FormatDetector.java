@@ -0,0 +1,103 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.config.InputFormat;
+
+import java.util.Locale;
+
+/**
+ * Picks the parser for a document before it is parsed, so YAML content no longer pays for
+ * a failed JSON parse. The decision uses the first significant byte after any byte order
+ * mark: a document opening with a brace or a bracket (or containing nothing) is read as
+ * JSON, anything else as YAML. The file extension decides whether a JSON guess may still
+ * fall back to YAML, which covers YAML flow-style documents.
+ */
+public final class FormatDetector {
+
+	private FormatDetector() {
+	}
+
+	/**
+	 * Determines the parser to use for a document.
+	 * @param content the raw document bytes
+	 * @param requested the requested format; {@code AUTO} or null sniffs the content
+	 * @return {@link InputFormat#JSON} or {@link InputFormat#YAML}
+	 */
+	public static InputFormat detect(byte[] content, InputFormat requested) {
+		if (requested == InputFormat.JSON || requested == InputFormat.YAML) {
+			return requested;
+		}
+		int first = firstSignificantByte(content);
+		if (first < 0 || first == '{' || first == '[') {
+			return InputFormat.JSON;
+		}
+		return InputFormat.YAML;
+	}
+
+	/**
+	 * Whether a document detected as JSON may be re-read as YAML when the JSON parse
+	 * fails. Never the case for an explicitly requested format or a {@code .json} file.
+	 * @param name the file or source name
+	 * @param requested the requested format
+	 * @return true if a YAML fallback is allowed
+	 */
+	public static boolean allowsYamlFallback(String name, InputFormat requested) {
+		if (requested == InputFormat.JSON || requested == InputFormat.YAML) {
+			return false;
+		}
+		return name == null || !name.toLowerCase(Locale.ROOT).endsWith(".json");
+	}
+
+	/**
+	 * Returns the first byte after a leading byte order mark that is not whitespace or
+	 * the zero padding of a UTF-16/UTF-32 encoded ASCII character.
+	 * @param content the raw document bytes
+	 * @return the byte value, or -1 if there is none
+	 */
+	private static int firstSignificantByte(byte[] content) {
+		for (int i = byteOrderMarkLength(content); i < content.length; i++) {
+			int c = content[i] & 0xFF;
+			switch (c) {
+				case 0x00, ' ', '\t', '\r', '\n' -> {
+					// skip
+				}
+				default -> {
+					return c;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the length of the byte order mark the content starts with: UTF-8, UTF-16 in
+	 * either byte order, or big-endian UTF-32 (little-endian UTF-32 is the UTF-16 mark
+	 * followed by zero padding).
+	 * @param content the raw document bytes
+	 * @return the number of bytes to skip, 0 without a byte order mark
+	 */
+	private static int byteOrderMarkLength(byte[] content) {
+		if (startsWith(content, 0xEF, 0xBB, 0xBF)) {
+			return 3;
+		}
+		if (startsWith(content, 0x00, 0x00, 0xFE, 0xFF)) {
+			return 4;
+		}
+		if (startsWith(content, 0xFE, 0xFF) || startsWith(content, 0xFF, 0xFE)) {
+			return 2;
+		}
+		return 0;
+	}
+
+	private static boolean startsWith(byte[] content, int... prefix) {
+		if (content.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((content[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
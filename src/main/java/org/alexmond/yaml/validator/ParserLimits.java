@@ -0,0 +1,313 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.snakeyaml.engine.v2.api.LoadSettings;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.StreamReadConstraints;
+import tools.jackson.core.TokenStreamLocation;
+import tools.jackson.core.json.JsonFactory;
+import tools.jackson.core.sym.PropertyNameMatcher;
+import tools.jackson.core.util.JsonParserDelegate;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLFactory;
+import tools.jackson.dataformat.yaml.YAMLMapper;
+import tools.jackson.dataformat.yaml.YAMLParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds the mappers that parse input documents with the configured resource limits, so a
+ * hostile or broken file fails with a parse error instead of exhausting the heap. Jackson
+ * enforces the nesting depth and, for JSON, the string length and document size through
+ * {@link StreamReadConstraints}; the YAML document size is the code point limit of the
+ * SnakeYAML {@link LoadSettings}, so {@code maxDocumentSize} replaces its 3MB default.
+ * Jackson reads YAML from the SnakeYAML event stream, where neither the string length
+ * nor the alias count is checked, so YAML parsers are wrapped by
+ * {@link #limitYaml(JsonParser, String, YamlSchemaValidatorConfig)}, which checks both
+ * as tokens are read. The number of documents in a stream, when limited, is checked by
+ * the validator as they are read.
+ * <p>
+ * A top-level array streamed element by element is read by the
+ * {@code element} mappers, which leave the whole input unbounded, through
+ * {@link #limitElements(JsonParser, String, YamlSchemaValidatorConfig)}, which applies
+ * {@code maxDocumentSize} to each element instead.
+ */
+final class ParserLimits {
+
+	private ParserLimits() {
+	}
+
+	/**
+	 * Builds a JSON mapper enforcing the configured limits.
+	 * @param config the configuration holding the limits
+	 * @return the mapper
+	 */
+	static JsonMapper jsonMapper(YamlSchemaValidatorConfig config) {
+		return jsonMapper(config, config.getMaxDocumentSize().toBytes());
+	}
+
+	/**
+	 * Builds a YAML mapper enforcing the configured limits.
+	 * @param config the configuration holding the limits
+	 * @return the mapper
+	 */
+	static YAMLMapper yamlMapper(YamlSchemaValidatorConfig config) {
+		return yamlMapper(config, maxDocumentBytes(config));
+	}
+
+	/**
+	 * Builds a JSON mapper for a top-level array streamed element by element, enforcing
+	 * the configured limits except the size of the whole input.
+	 * @param config the configuration holding the limits
+	 * @return the mapper
+	 */
+	static JsonMapper elementJsonMapper(YamlSchemaValidatorConfig config) {
+		return jsonMapper(config, -1);
+	}
+
+	/**
+	 * Builds a YAML mapper for a top-level array streamed element by element, enforcing
+	 * the configured limits except the size of the whole document.
+	 * @param config the configuration holding the limits
+	 * @return the mapper
+	 */
+	static YAMLMapper elementYamlMapper(YamlSchemaValidatorConfig config) {
+		return yamlMapper(config, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Wraps the parser of a top-level array so that reading an element larger than
+	 * {@code maxDocumentSize} fails as soon as it passes the limit.
+	 * @param parser the parser, created by an {@code element} mapper and positioned
+	 * before the array
+	 * @param filePath Path to the file being read (used for error reporting)
+	 * @param config the configuration holding the limits
+	 * @return the limited parser, closing {@code parser} when closed
+	 */
+	static JsonParser limitElements(JsonParser parser, String filePath, YamlSchemaValidatorConfig config) {
+		return new ElementSizeLimit(parser, filePath, config);
+	}
+
+	/**
+	 * Wraps a YAML parser so that reading a string longer than {@code maxStringLength},
+	 * or more than {@code maxAliases} aliases to anchored mappings and sequences in one
+	 * document, fails as soon as it is read. Aliases to scalars are not counted, as in
+	 * SnakeYAML.
+	 * @param parser the parser
+	 * @param filePath Path to the file being read (used for error reporting)
+	 * @param config the configuration holding the limits
+	 * @return the limited parser, closing {@code parser} when closed, or {@code parser}
+	 * itself if it does not read YAML
+	 */
+	static JsonParser limitYaml(JsonParser parser, String filePath, YamlSchemaValidatorConfig config) {
+		return (parser instanceof YAMLParser yamlParser) ? new YamlLimits(yamlParser, filePath, config) : parser;
+	}
+
+	/**
+	 * Reads a whole input that is kept in memory, failing once it passes the
+	 * {@code maxDocumentSize} limit instead of reading on.
+	 * @param filePath Path to the file being read (used for error reporting)
+	 * @param inputStream the input
+	 * @param config the configuration holding the limits
+	 * @return the bytes of the input
+	 * @throws YamlValidationException if the input is larger than the limit
+	 * @throws IOException if the input cannot be read
+	 */
+	static byte[] readDocument(String filePath, InputStream inputStream, YamlSchemaValidatorConfig config)
+			throws IOException {
+		int limit = maxDocumentBytes(config);
+		byte[] content = inputStream.readNBytes((limit < Integer.MAX_VALUE) ? limit + 1 : limit);
+		if (content.length > limit) {
+			throw new YamlValidationException(
+					"Document exceeds the maximum size of " + config.getMaxDocumentSize() + ": " + filePath, filePath,
+					null);
+		}
+		return content;
+	}
+
+	private static JsonMapper jsonMapper(YamlSchemaValidatorConfig config, long maxDocumentLength) {
+		return JsonMapper
+			.builder(JsonFactory.builder().streamReadConstraints(constraints(config, maxDocumentLength)).build())
+			.build();
+	}
+
+	private static YAMLMapper yamlMapper(YamlSchemaValidatorConfig config, int codePointLimit) {
+		LoadSettings loadSettings = LoadSettings.builder().setCodePointLimit(codePointLimit).build();
+		YAMLFactory factory = YAMLFactory.builder()
+			.loadSettings(loadSettings)
+			.streamReadConstraints(constraints(config, config.getMaxDocumentSize().toBytes()))
+			.build();
+		return YAMLMapper.builder(factory).build();
+	}
+
+	private static int maxDocumentBytes(YamlSchemaValidatorConfig config) {
+		return toInt(config.getMaxDocumentSize().toBytes());
+	}
+
+	private static StreamReadConstraints constraints(YamlSchemaValidatorConfig config, long maxDocumentLength) {
+		return StreamReadConstraints.builder()
+			.maxDocumentLength(maxDocumentLength)
+			.maxNestingDepth(config.getMaxNestingDepth())
+			.maxStringLength(config.getMaxStringLength())
+			.build();
+	}
+
+	private static int toInt(long bytes) {
+		return (int) Math.min(bytes, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Measures each element of a top-level array from the offset of its first token, in
+	 * bytes for JSON and in characters for YAML, checking the size after every token read.
+	 */
+	private static final class ElementSizeLimit extends JsonParserDelegate {
+
+		private final String filePath;
+
+		private final YamlSchemaValidatorConfig config;
+
+		private final long limit;
+
+		private int depth;
+
+		private long elementStart = -1;
+
+		ElementSizeLimit(JsonParser parser, String filePath, YamlSchemaValidatorConfig config) {
+			super(parser);
+			this.filePath = filePath;
+			this.config = config;
+			this.limit = config.getMaxDocumentSize().toBytes();
+		}
+
+		@Override
+		public JsonToken nextToken() {
+			return track(super.nextToken());
+		}
+
+		@Override
+		public JsonToken nextValue() {
+			return track(super.nextValue());
+		}
+
+		@Override
+		public String nextName() {
+			String name = super.nextName();
+			track(currentToken());
+			return name;
+		}
+
+		@Override
+		public boolean nextName(SerializableString name) {
+			boolean matched = super.nextName(name);
+			track(currentToken());
+			return matched;
+		}
+
+		@Override
+		public int nextNameMatch(PropertyNameMatcher matcher) {
+			int match = super.nextNameMatch(matcher);
+			track(currentToken());
+			return match;
+		}
+
+		private JsonToken track(JsonToken token) {
+			if (token == null) {
+				return null;
+			}
+			if (this.depth == 1 && !token.isStructEnd()) {
+				this.elementStart = offset(this.delegate.currentTokenLocation());
+			}
+			if (token.isStructStart()) {
+				this.depth++;
+			}
+			else if (token.isStructEnd()) {
+				this.depth--;
+			}
+			if (this.depth == 0) {
+				this.elementStart = -1;
+			}
+			else if (this.elementStart >= 0
+					&& offset(this.delegate.currentLocation()) - this.elementStart > this.limit) {
+				throw new YamlValidationException("Array element exceeds the maximum size of "
+						+ this.config.getMaxDocumentSize() + ": " + this.filePath, this.filePath, null);
+			}
+			return token;
+		}
+
+		private static long offset(TokenStreamLocation location) {
+			return (location.getByteOffset() >= 0) ? location.getByteOffset() : location.getCharOffset();
+		}
+
+	}
+
+	/**
+	 * Checks the YAML limits Jackson leaves out. An alias is read as a string holding the
+	 * anchor name, so it counts when the anchor was set on a mapping or sequence of the
+	 * same document.
+	 */
+	private static final class YamlLimits extends JsonParserDelegate {
+
+		private final YAMLParser yamlParser;
+
+		private final String filePath;
+
+		private final YamlSchemaValidatorConfig config;
+
+		private final Set<String> collectionAnchors = new HashSet<>();
+
+		private int aliases;
+
+		YamlLimits(YAMLParser parser, String filePath, YamlSchemaValidatorConfig config) {
+			super(parser);
+			this.yamlParser = parser;
+			this.filePath = filePath;
+			this.config = config;
+		}
+
+		@Override
+		public JsonToken nextToken() {
+			boolean documentStart = this.yamlParser.streamReadContext().inRoot();
+			return check(documentStart, super.nextToken());
+		}
+
+		@Override
+		public JsonToken nextValue() {
+			boolean documentStart = this.yamlParser.streamReadContext().inRoot();
+			return check(documentStart, super.nextValue());
+		}
+
+		private JsonToken check(boolean documentStart, JsonToken token) {
+			if (token == null) {
+				return null;
+			}
+			if (documentStart) {
+				this.collectionAnchors.clear();
+				this.aliases = 0;
+			}
+			if (token.isStructStart()) {
+				Object anchor = this.yamlParser.getObjectId();
+				if (anchor != null) {
+					this.collectionAnchors.add(anchor.toString());
+				}
+			}
+			else if (token == JsonToken.VALUE_STRING) {
+				String value = this.yamlParser.getString();
+				if (!this.yamlParser.isCurrentAlias()) {
+					this.yamlParser.streamReadConstraints().validateStringLength(value.length());
+				}
+				else if (this.collectionAnchors.contains(value) && ++this.aliases > this.config.getMaxAliases()) {
+					throw new YamlValidationException("Document has more than the maximum of "
+							+ this.config.getMaxAliases() + " aliases: " + this.filePath, this.filePath, null);
+				}
+			}
+			return token;
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.schema.Projection;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.NullNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Builds documents from a token stream following a {@link Projection}: values the schema
+ * never looks at are skipped with {@link JsonParser#skipChildren()} and stand as
+ * {@code null}, objects the schema looks into are built property by property, and
+ * everything else is read whole by the mapper, as in a full parse.
+ */
+final class ProjectedReader {
+
+	private ProjectedReader() {
+	}
+
+	/**
+	 * Reads the value the parser is positioned at.
+	 * @param parser the parser, at the first token of the value
+	 * @param mapper the mapper building the nodes that are kept
+	 * @param projection the parts of the value to keep
+	 * @return the projected value; the parser is left at its last token
+	 */
+	static JsonNode read(JsonParser parser, ObjectMapper mapper, Projection projection) {
+		if (projection.isNone()) {
+			parser.skipChildren();
+			return NullNode.getInstance();
+		}
+		if (projection.isAll() || parser.currentToken() != JsonToken.START_OBJECT) {
+			JsonNode node = mapper.readTree(parser);
+			return (node != null) ? node : NullNode.getInstance();
+		}
+		ObjectNode node = mapper.createObjectNode();
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			parser.nextToken();
+			node.set(name, read(parser, mapper, projection.property(name)));
+		}
+		return node;
+	}
+
+	/**
+	 * Reads one document of a file in full, for a document whose {@code $schema} header
+	 * names another schema than the one it was projected for.
+	 * @param content the file content
+	 * @param mapper the mapper of the file's format
+	 * @param index the position of the document in the file, from 0
+	 * @return the document
+	 * @throws IOException if the file cannot be read
+	 */
+	static JsonNode readDocument(FileContent content, ObjectMapper mapper, int index) throws IOException {
+		try (InputStream is = content.newStream(); JsonParser parser = mapper.createParser(is)) {
+			for (int i = 0; i < index; i++) {
+				parser.nextToken();
+				parser.skipChildren();
+			}
+			parser.nextToken();
+			return read(parser, mapper, Projection.ALL);
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+package org.alexmond.yaml.validator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor shared by the validation stages that can run concurrently. Workers are
+ * virtual threads when the runtime supports them (JDK 21+) and daemon platform threads
+ * otherwise; in both cases at most {@code parallelism} tasks run at once.
+ * <p>
+ * {@link #invokeAll(List)} returns results in task order and the calling thread helps by
+ * running tasks that no worker has picked up yet, so nested calls (a worker submitting
+ * sub-tasks) cannot deadlock the pool. {@link #ordered(int, Consumer)} does the same for
+ * tasks that arrive one by one, such as the documents of a stream, with a bounded number
+ * of them pending.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ValidationExecutor implements DisposableBean {
+
+	private static final String AUTO = "auto";
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final Object lock = new Object();
+
+	private volatile ExecutorService executor;
+
+	private volatile ExecutorService backgroundExecutor;
+
+	/**
+	 * Resolves the configured parallelism.
+	 * @return the number of tasks allowed to run at once, at least 1
+	 */
+	public int parallelism() {
+		String value = this.config.getParallelism();
+		if (!StringUtils.hasText(value)) {
+			return 1;
+		}
+		if (AUTO.equalsIgnoreCase(value.trim())) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		}
+		catch (NumberFormatException ex) {
+			log.warn("Invalid parallelism '{}', validating sequentially", value);
+			return 1;
+		}
+	}
+
+	/**
+	 * Runs the tasks, concurrently when parallelism allows, and returns their results in
+	 * task order.
+	 * @param tasks the tasks to run
+	 * @param <T> the result type
+	 * @return the results, one per task, in the order the tasks were given
+	 */
+	public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+		List<T> results = new ArrayList<>(tasks.size());
+		if (tasks.size() <= 1 || parallelism() <= 1) {
+			for (Callable<T> task : tasks) {
+				results.add(callDirect(task));
+			}
+			return results;
+		}
+		ExecutorService pool = executor();
+		List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+		for (Callable<T> task : tasks) {
+			FutureTask<T> future = new FutureTask<>(task);
+			futures.add(future);
+			pool.execute(future);
+		}
+		for (FutureTask<T> future : futures) {
+			// No-op when a worker already started it; otherwise the caller runs it
+			future.run();
+			results.add(await(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Starts a sequence of tasks that run concurrently when parallelism allows and hand
+	 * their results to the sink in submission order. At most {@code maxInFlight} tasks
+	 * are held at once, counting the one the caller is preparing: submitting waits for
+	 * the oldest task, running it on the calling thread if no worker has started it yet,
+	 * once {@code maxInFlight - 1} are pending.
+	 * @param maxInFlight the number of tasks held at once; 1 or less runs each task on
+	 * submission
+	 * @param sink receives the results, in submission order, on the calling thread
+	 * @param <T> the result type
+	 * @return the sequence to submit tasks to
+	 */
+	public <T> OrderedTasks<T> ordered(int maxInFlight, Consumer<? super T> sink) {
+		return new OrderedTasks<>((maxInFlight > 1 && parallelism() > 1) ? maxInFlight : 1, sink);
+	}
+
+	/**
+	 * Starts an I/O-bound task, such as a schema download, in the background without
+	 * taking a validation slot. Background tasks are not bounded by {@code parallelism};
+	 * they are expected to limit themselves (downloads are limited per host).
+	 * @param task the task to run
+	 * @return a future completing when the task finishes
+	 */
+	public CompletableFuture<Void> runAsync(Runnable task) {
+		return CompletableFuture.runAsync(task, backgroundExecutor());
+	}
+
+	/**
+	 * Computes a value in the background, like {@link #runAsync(Runnable)}.
+	 * @param task the task to run
+	 * @param <T> the result type
+	 * @return a future completing with the task's result
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+		return CompletableFuture.supplyAsync(task, backgroundExecutor());
+	}
+
+	@Override
+	public void destroy() {
+		ExecutorService current = this.executor;
+		if (current != null) {
+			current.shutdownNow();
+		}
+		ExecutorService background = this.backgroundExecutor;
+		if (background != null) {
+			background.shutdownNow();
+		}
+	}
+
+	private ExecutorService backgroundExecutor() {
+		ExecutorService current = this.backgroundExecutor;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.backgroundExecutor;
+				if (current == null) {
+					current = Executors.newCachedThreadPool(threadFactory("yj-background-"));
+					this.backgroundExecutor = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private ExecutorService executor() {
+		ExecutorService current = this.executor;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.executor;
+				if (current == null) {
+					// The calling thread also runs tasks, so one worker fewer keeps the
+					// total at the configured parallelism
+					int workers = Math.max(1, parallelism() - 1);
+					current = Executors.newFixedThreadPool(workers, threadFactory("yj-validate-"));
+					this.executor = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private static ThreadFactory threadFactory(String prefix) {
+		try {
+			// Thread.ofVirtual() is JDK 21+; reflection keeps the Java 17 baseline
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			log.debug("Virtual threads unavailable, using platform threads: {}", ex.toString());
+			AtomicInteger counter = new AtomicInteger();
+			return (runnable) -> {
+				Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+
+	/**
+	 * Tasks submitted one by one whose results are handed on in submission order. Not
+	 * thread-safe: one thread submits and finishes.
+	 *
+	 * @param <T> the result type
+	 */
+	public final class OrderedTasks<T> {
+
+		private final int maxInFlight;
+
+		private final Consumer<? super T> sink;
+
+		private final ArrayDeque<FutureTask<T>> pending = new ArrayDeque<>();
+
+		private OrderedTasks(int maxInFlight, Consumer<? super T> sink) {
+			this.maxInFlight = maxInFlight;
+			this.sink = sink;
+		}
+
+		/**
+		 * Starts a task, then hands on results until at most {@code maxInFlight - 1}
+		 * tasks are pending.
+		 * @param task the task to run
+		 */
+		public void submit(Callable<T> task) {
+			if (this.maxInFlight <= 1) {
+				this.sink.accept(callDirect(task));
+				return;
+			}
+			FutureTask<T> future = new FutureTask<>(task);
+			this.pending.add(future);
+			executor().execute(future);
+			while (this.pending.size() >= this.maxInFlight) {
+				completeOldest();
+			}
+		}
+
+		/**
+		 * Waits for the pending tasks and hands on their results.
+		 */
+		public void finish() {
+			while (!this.pending.isEmpty()) {
+				completeOldest();
+			}
+		}
+
+		private void completeOldest() {
+			FutureTask<T> future = this.pending.poll();
+			// No-op when a worker already started it; otherwise the caller runs it
+			future.run();
+			this.sink.accept(await(future));
+		}
+
+	}
+
+	private static <T> T callDirect(Callable<T> task) {
+		try {
+			return task.call();
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static <T> T await(FutureTask<T> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for validation", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+}
@@ -1,46 +1,43 @@
 package org.alexmond.yaml.validator;
 
-import com.networknt.schema.InputFormat;
 import com.networknt.schema.OutputFormat;
 import com.networknt.schema.Schema;
-import com.networknt.schema.SchemaLocation;
-import com.networknt.schema.SchemaRegistry;
-import com.networknt.schema.SchemaRegistryConfig;
-import com.networknt.schema.SpecificationVersion;
 import com.networknt.schema.output.OutputUnit;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.alexmond.yaml.validator.catalog.SchemaDetector;
+import org.alexmond.yaml.validator.config.InputFormat;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.alexmond.yaml.validator.schema.ArraySchema;
+import org.alexmond.yaml.validator.schema.Projection;
+import org.alexmond.yaml.validator.schema.SchemaCache;
+import org.alexmond.yaml.validator.schema.SchemaLoader;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.exc.StreamConstraintsException;
+import tools.jackson.databind.MappingIterator;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.MissingNode;
 import tools.jackson.dataformat.yaml.YAMLMapper;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLParameters;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * A validator for YAML files against JSON Schema definitions. This component provides
@@ -49,20 +46,50 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class YamlSchemaValidator {
 
-	private static final int HTTP_SUCCESS_STATUS = 200;
+	private static final int SNIFF_BYTES = 8192;
+
+	private static final int POOLED_BUFFERS = 8;
+
+	private static final int POOLED_BUFFER_MAX_SIZE = 4 * 1024 * 1024;
 
 	private final YamlSchemaValidatorConfig config;
 
 	private final SchemaDetector schemaDetector;
 
-	private final YAMLMapper yamlMapper = YAMLMapper.builder().build();
+	private final SchemaCache schemaCache;
+
+	private final ValidationExecutor validationExecutor;
+
+	private final YAMLMapper yamlMapper;
 
-	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+	private final JsonMapper jsonMapper;
 
-	Map<String, Schema> schemaCache = new HashMap<>();
+	private final YAMLMapper elementYamlMapper;
+
+	private final JsonMapper elementJsonMapper;
+
+	private final BufferPool bufferPool = new BufferPool(POOLED_BUFFERS, POOLED_BUFFER_MAX_SIZE);
+
+	/**
+	 * Creates a validator whose parsers enforce the resource limits of the configuration.
+	 * @param config the configuration
+	 * @param schemaDetector detects the schema of documents without one
+	 * @param schemaCache the compiled schemas
+	 * @param validationExecutor validates the documents of a stream concurrently
+	 */
+	public YamlSchemaValidator(YamlSchemaValidatorConfig config, SchemaDetector schemaDetector,
+			SchemaCache schemaCache, ValidationExecutor validationExecutor) {
+		this.config = config;
+		this.schemaDetector = schemaDetector;
+		this.schemaCache = schemaCache;
+		this.validationExecutor = validationExecutor;
+		this.yamlMapper = ParserLimits.yamlMapper(config);
+		this.jsonMapper = ParserLimits.jsonMapper(config);
+		this.elementYamlMapper = ParserLimits.elementYamlMapper(config);
+		this.elementJsonMapper = ParserLimits.elementJsonMapper(config);
+	}
 
 	/**
 	 * Validates a YAML file against a JSON Schema.
@@ -72,16 +99,52 @@ public class YamlSchemaValidator {
 	 * the validation output
 	 */
 	public Map<String, OutputUnit> validate(String filePath, String schemaPath) {
+		Map<String, OutputUnit> outputUnitMap = new LinkedHashMap<>();
+		validate(filePath, schemaPath, outputUnitMap::put);
+		return outputUnitMap;
+	}
+
+	/**
+	 * Validates a YAML file against a JSON Schema, handing each document's result to the
+	 * consumer as soon as it is available. Regular files are opened as
+	 * {@link FileContent}: memory-mapped from the {@code mapThreshold} size on and read
+	 * into a pooled buffer below it, so neither the parse nor a YAML retry of a failed
+	 * JSON parse copies the file onto the heap again. Other paths, such as pipes, are
+	 * streamed.
+	 * @param filePath Path to the YAML file to validate
+	 * @param schemaPath Path to the JSON Schema file (can be local file path or HTTP URL)
+	 * @param consumer Receives the result key and validation output of each document
+	 */
+	public void validate(String filePath, String schemaPath, BiConsumer<String, OutputUnit> consumer) {
+		Path path = Path.of(filePath);
+		if (FileContent.isSupported(path)) {
+			try (FileContent content = FileContent.open(path, config.getMapThreshold().toBytes(), bufferPool)) {
+				OutputUnit streamed = config.isStreamArrays() ? validateArrayStream(filePath, schemaPath, content)
+						: null;
+				if (streamed != null) {
+					consumer.accept(filePath, streamed);
+					return;
+				}
+				ProjectedSchema projected = projectedSchema(schemaPath);
+				validateDocuments(filePath, schemaPath, consumer,
+						(contentPrefix, action) -> readDocuments(filePath, content, projected, contentPrefix, action));
+			}
+			catch (IOException ex) {
+				log.debug("Error reading file", ex);
+				consumer.accept(filePath, genericError(ex.toString()));
+			}
+			return;
+		}
 		try (InputStream is = new FileInputStream(filePath)) {
-			return validate(is, filePath, schemaPath);
+			validate(is, filePath, schemaPath, consumer);
 		}
 		catch (FileNotFoundException ex) {
 			log.debug("File not found", ex);
-			return Map.of(filePath, genericError("NoSuchFileException: " + filePath));
+			consumer.accept(filePath, genericError("NoSuchFileException: " + filePath));
 		}
-		catch (YamlValidationException | IOException ex) {
+		catch (IOException ex) {
 			log.debug("Error reading file", ex);
-			return Map.of(filePath, genericError(ex.toString()));
+			consumer.accept(filePath, genericError(ex.toString()));
 		}
 	}
 
@@ -93,34 +156,159 @@ public class YamlSchemaValidator {
 	 * @return Map containing validation results
 	 */
 	public Map<String, OutputUnit> validate(InputStream inputStream, String sourceName, String schemaPath) {
-		List<JsonNode> fileNodeList;
+		Map<String, OutputUnit> outputUnitMap = new LinkedHashMap<>();
+		validate(inputStream, sourceName, schemaPath, outputUnitMap::put);
+		return outputUnitMap;
+	}
+
+	/**
+	 * Validates an InputStream against a JSON Schema one document at a time. YAML streams
+	 * are pulled from the parser document by document and each document is released once
+	 * validated, so memory depends on the largest documents rather than the whole stream,
+	 * and unbounded input such as stdin produces results while it is still being read.
+	 * With a {@code parallelism} above 1, documents are validated concurrently while the
+	 * next ones are parsed, holding at most {@code maxDocumentsInFlight} of them.
+	 * <p>
+	 * A single document is reported under {@code sourceName}; multiple documents under
+	 * {@code sourceName-1}, {@code sourceName-2}, ... in stream order. The first result
+	 * is therefore held back until it is known whether a second document follows.
+	 * Results already handed out are kept when a later document fails to parse: the
+	 * error follows them under the number of the failed document, and only an error in
+	 * the first document is reported under {@code sourceName} alone.
+	 * @param inputStream InputStream of the content to validate
+	 * @param sourceName Name of the source (e.g. file path or "stdin")
+	 * @param schemaPath Path to the JSON Schema file
+	 * @param consumer Receives the result key and validation output of each document
+	 */
+	public void validate(InputStream inputStream, String sourceName, String schemaPath,
+			BiConsumer<String, OutputUnit> consumer) {
+		validateDocuments(sourceName, schemaPath, consumer,
+				(contentPrefix, action) -> readDocuments(sourceName, inputStream, contentPrefix, action));
+	}
+
+	private void validateDocuments(String sourceName, String schemaPath, BiConsumer<String, OutputUnit> consumer,
+			DocumentReader reader) {
+		DocumentResults results = new DocumentResults(sourceName, consumer);
+		ValidationExecutor.OrderedTasks<OutputUnit> tasks = validationExecutor
+			.ordered(config.getMaxDocumentsInFlight(), results::add);
+		AtomicInteger documents = new AtomicInteger();
+		ContentPrefix contentPrefix = new ContentPrefix((schemaPath == null) ? schemaDetector.contentKeys() : 0);
 		try {
-			fileNodeList = getYamlJsonNode(sourceName, inputStream);
+			reader.read(contentPrefix, (fileNode) -> {
+				if (config.getMaxDocuments() > 0 && documents.incrementAndGet() > config.getMaxDocuments()) {
+					throw new YamlValidationException("Input has more than the maximum of " + config.getMaxDocuments()
+							+ " documents: " + sourceName, sourceName, schemaPath);
+				}
+				Map<String, String> fields = contentPrefix.fields();
+				tasks.submit(() -> validateJsonNode(sourceName, schemaPath, fileNode, fields));
+			});
 		}
 		catch (YamlValidationException | IOException ex) {
 			log.debug("Error reading input stream", ex);
-			return Map.of(sourceName, genericError(ex.toString()));
+			tasks.finish();
+			results.fail(genericError(ex.toString()));
+			return;
 		}
+		tasks.finish();
+		results.finish();
+	}
 
-		return switch (fileNodeList.size()) {
-			case 0 -> Map.of(sourceName, genericError("No Nodes found in YAML file"));
-			case 1 -> Map.of(sourceName, validateJsonNode(sourceName, schemaPath, fileNodeList.get(0)));
-			default -> validateMultipleJsonNodes(sourceName, schemaPath, fileNodeList);
-		};
+	/**
+	 * Lists the schemas validating a file would use, without building document trees: the
+	 * top level of each document is scanned for a {@code $schema} header and documents
+	 * without one fall back to the given schema or auto-detection, as in validation.
+	 * Unreadable or unparsable files only contribute the fallback; their errors are
+	 * reported when they are validated.
+	 * @param filePath Path to the YAML or JSON file
+	 * @param schemaPath Schema used when a document has no {@code $schema} header
+	 * @return the distinct schema paths or URLs, possibly empty
+	 */
+	public Set<String> schemaReferences(String filePath, String schemaPath) {
+		SchemaReferences declared = declaredSchemas(filePath, schemaPath);
+		Set<String> references = declared.schemas();
+		if (declared.needsDetection()) {
+			String detected = detectSchema(filePath);
+			if (detected != null) {
+				references.add(detected);
+			}
+		}
+		return references;
 	}
 
-	private Map<String, OutputUnit> validateMultipleJsonNodes(String filePath, String schemaPath,
-			List<JsonNode> fileNodeList) {
-		Map<String, OutputUnit> outputUnitMap = new HashMap<>();
-		int fileIndex = 0;
-		for (JsonNode fileNode : fileNodeList) {
-			fileIndex++;
-			outputUnitMap.put(filePath + "-" + fileIndex, validateJsonNode(filePath, schemaPath, fileNode));
+	/**
+	 * Lists the schemas a file refers to like {@link #schemaReferences(String, String)},
+	 * but without auto-detection, which needs the catalog. When a document needs
+	 * auto-detection the catalog starts loading in the background right away, while the
+	 * rest of the scan and other work go on.
+	 * @param filePath Path to the YAML or JSON file
+	 * @param schemaPath Schema used when a document has no {@code $schema} header
+	 * @return the declared schemas and whether auto-detection is needed
+	 */
+	public SchemaReferences declaredSchemas(String filePath, String schemaPath) {
+		Set<String> references = new LinkedHashSet<>();
+		boolean needsFallback = true;
+		if (!config.isSchemaOverride()) {
+			try (InputStream is = new FileInputStream(filePath)) {
+				needsFallback = scanSchemaHeaders(filePath, is, references, schemaPath == null);
+			}
+			catch (IOException | JacksonException | YamlValidationException ex) {
+				log.debug("Error scanning {} for $schema headers: {}", filePath, ex.getMessage());
+			}
 		}
-		return outputUnitMap;
+		if (needsFallback && schemaPath != null) {
+			references.add(schemaPath);
+		}
+		return new SchemaReferences(references, needsFallback && schemaPath == null);
+	}
+
+	/**
+	 * Detects the schema of a file from its path, waiting for the catalog if it is still
+	 * loading.
+	 * @param filePath Path to the file
+	 * @return the detected schema URL, or null if none matches
+	 */
+	public String detectSchema(String filePath) {
+		return schemaDetector.detect(filePath);
 	}
 
-	private OutputUnit validateJsonNode(String filePath, String schemaPath, JsonNode fileNode) {
+	/**
+	 * Loads and compiles a schema into the schema cache ahead of validation.
+	 * @param schemaPath Path or URL of the schema
+	 * @return true if the schema is ready, false if it could not be loaded
+	 */
+	public boolean compileSchema(String schemaPath) {
+		try {
+			schemaCache.get(schemaPath);
+			return true;
+		}
+		catch (RuntimeException ex) {
+			log.debug("Error compiling schema {}: {}", schemaPath, ex.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Tests whether a schema can be used without waiting on a download.
+	 * @param schemaPath Path or URL of the schema
+	 * @return true if the schema is compiled, local or in the disk cache
+	 */
+	public boolean isSchemaAvailable(String schemaPath) {
+		return schemaCache.isAvailable(schemaPath);
+	}
+
+	/**
+	 * Validates one document against its {@code $schema} header, the given schema or, for
+	 * neither, the schema detected from the path mappings, the document's first key
+	 * values or the catalog.
+	 * @param filePath Path to the file holding the document
+	 * @param schemaPath The given schema, or null to detect one
+	 * @param fileNode The document
+	 * @param fields The scalar values of the document's first top-level keys, collected
+	 * while it was parsed
+	 * @return the validation output
+	 */
+	private OutputUnit validateJsonNode(String filePath, String schemaPath, JsonNode fileNode,
+			Map<String, String> fields) {
 		try {
 			if (!config.isSchemaOverride()) {
 				var schemaPathFromNode = getSchemaPathFromNode(filePath, fileNode);
@@ -129,15 +317,14 @@ public class YamlSchemaValidator {
 				}
 			}
 			if (schemaPath == null) {
-				schemaPath = schemaDetector.detect(filePath);
+				schemaPath = schemaDetector.detect(filePath, fields);
 			}
 			if (schemaPath == null) {
 				return genericError("No schema found in YAML file or provided as parameter");
 			}
 			else {
-				Schema schema = getSchemaByPath(schemaPath);
-				schema.initializeValidators();
-				return schema.validate(fileNode.toString(), InputFormat.JSON, OutputFormat.LIST);
+				Schema schema = schemaCache.get(schemaPath);
+				return validateTwoPhase(schema, fileNode);
 			}
 			// SchemaRegistryConfig config = SchemaRegistryConfig.builder()
 			// .formatAssertionsEnabled(true) // Treat format failures as errors
@@ -164,7 +351,7 @@ public class YamlSchemaValidator {
 																		// from and if it
 																		// is appropriate
 			// IllegalArgumentException - from getSchemaPathFromNode
-			// YamlValidationException - from getYamlJsonNode, getSchemaByPath
+			// YamlValidationException - from getYamlJsonNode, SchemaCache.get
 			log.debug("{}", filePath, ex);
 			return genericError(ex.getMessage());
 		}
@@ -175,30 +362,73 @@ public class YamlSchemaValidator {
 	}
 
 	/**
-	 * Retrieves or creates a JsonSchema instance for the given schema path. Uses cached
-	 * schema if available, otherwise loads and caches the new schema.
-	 * @param schemaPath Path to the schema file
-	 * @return JsonSchema instance for validation
-	 * @throws YamlValidationException if schema cannot be loaded or parsed
+	 * Validates a file holding a single top-level array element by element with the
+	 * {@link ArrayStreamValidator}, when its schema allows it. Anything else, including
+	 * content that does not parse, is left to document validation, which reports it as
+	 * before.
+	 * @param filePath Path to the file
+	 * @param schemaPath The given schema, or null to detect one from the path
+	 * @param content Content of the file
+	 * @return the validation output, or null if the file is not validated this way
+	 * @throws IOException if the file cannot be read
 	 */
-	private Schema getSchemaByPath(String schemaPath) {
-		if (schemaCache.containsKey(schemaPath)) {
-			return schemaCache.get(schemaPath);
+	private OutputUnit validateArrayStream(String filePath, String schemaPath, FileContent content)
+			throws IOException {
+		ArraySchema arraySchema;
+		try {
+			String effectiveSchema = (schemaPath != null) ? schemaPath : schemaDetector.detect(filePath);
+			arraySchema = (effectiveSchema != null) ? schemaCache.arraySchema(effectiveSchema) : null;
 		}
-		String schemaString = getSchema(schemaPath);
-		// Step 2: Load JSON/YAML Schema
-		JsonNode schemaNode = getSchemaYamlJsonNode(schemaPath, schemaString);
-
-		// Step 3: Determine schema version from $schema
-		SchemaRegistryConfig config = SchemaRegistryConfig.builder().formatAssertionsEnabled(true).build();
-
-		SchemaRegistry schemaRegistry = SchemaRegistry.withDefaultDialect(SpecificationVersion.DRAFT_2020_12,
-				(builder) -> builder.schemaRegistryConfig(config));
+		catch (RuntimeException ex) {
+			log.debug("No array schema for {}: {}", filePath, ex.getMessage());
+			return null;
+		}
+		if (arraySchema == null) {
+			return null;
+		}
+		byte[] prefix;
+		try (InputStream is = content.newStream()) {
+			prefix = is.readNBytes(SNIFF_BYTES);
+		}
+		ObjectMapper mapper = (FormatDetector.detect(prefix, config.getInputFormat()) == InputFormat.JSON)
+				? elementJsonMapper : elementYamlMapper;
+		try (InputStream is = content.newStream();
+				JsonParser parser = ParserLimits.limitElements(
+						ParserLimits.limitYaml(mapper.createParser(is), filePath, config), filePath, config)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				return null;
+			}
+			OutputUnit outputUnit = ArrayStreamValidator.validate(parser, mapper, arraySchema);
+			// Another document after the array is validated as a multi-document file
+			return (parser.nextToken() == null) ? outputUnit : null;
+		}
+		catch (JacksonException ex) {
+			log.debug("Error streaming array from {}, validating documents: {}", filePath, ex.getMessage());
+			return null;
+		}
+		catch (RuntimeException ex) {
+			log.debug("Unexpected Exception", ex);
+			return genericError(ex.getMessage());
+		}
+	}
 
-		// Step 4: Create JsonSchema and cache
-		Schema schema = schemaRegistry.getSchema(SchemaLocation.of(schemaPath), schemaNode);
-		schemaCache.put(schemaPath, schema);
-		return schema;
+	/**
+	 * Validates the parsed tree in two phases: a fail-fast boolean pass first, and the
+	 * detailed {@code LIST} output only for documents that fail it. The {@code LIST}
+	 * output of a passing document carries nothing but the verdict, so it is built
+	 * directly and reports stay identical while most valid documents skip building output
+	 * units and messages.
+	 * @param schema the initialized schema
+	 * @param fileNode the document to validate
+	 * @return the validation output
+	 */
+	static OutputUnit validateTwoPhase(Schema schema, JsonNode fileNode) {
+		if (Boolean.TRUE.equals(schema.validate(fileNode, OutputFormat.BOOLEAN))) {
+			OutputUnit outputUnit = new OutputUnit();
+			outputUnit.setValid(true);
+			return outputUnit;
+		}
+		return schema.validate(fileNode, OutputFormat.LIST);
 	}
 
 	/**
@@ -206,7 +436,7 @@ public class YamlSchemaValidator {
 	 * @param message Error message to include in the output
 	 * @return Map containing the error output
 	 */
-	private OutputUnit genericError(String message) {
+	static OutputUnit genericError(String message) {
 		OutputUnit outputUnit = new OutputUnit();
 		outputUnit.setValid(false);
 		outputUnit.setErrors(Map.of("error", message));
@@ -214,59 +444,220 @@ public class YamlSchemaValidator {
 	}
 
 	/**
-	 * Parses content as either JSON or YAML into a JsonNode. Attempts JSON parsing first,
-	 * falls back to YAML if JSON parsing fails.
+	 * Parses content as either JSON or YAML and passes each document to the action as it
+	 * is read. The parser is chosen once by {@link FormatDetector} from a bounded prefix
+	 * (or forced by the {@code inputFormat} setting); a JSON guess only falls back to
+	 * YAML when the detector allows it. YAML is streamed from the input one document at a
+	 * time.
 	 * @param filePath Path to the file being parsed (used for error reporting)
-	 * @param content String content to parse
-	 * @return Parsed JsonNode
+	 * @param inputStream InputStream of the content to parse
+	 * @param contentPrefix Collects the first key values of each document
+	 * @param action Receives each parsed document
 	 * @throws YamlValidationException if content cannot be parsed as either JSON or YAML
 	 */
-	private JsonNode getSchemaYamlJsonNode(String filePath, String content) {
-		JsonNode jsonNode;
-		try {
-			return jsonMapper.readTree(content);
-		}
-		catch (JacksonException ex) {
-			log.debug("Error parsing schema as JSON, trying YAML: {}, {}", filePath, ex.getMessage());
+	private void readDocuments(String filePath, InputStream inputStream, ContentPrefix contentPrefix,
+			Consumer<JsonNode> action) throws YamlValidationException, IOException {
+		BufferedInputStream buffered = new BufferedInputStream(inputStream, SNIFF_BYTES);
+		buffered.mark(SNIFF_BYTES);
+		byte[] prefix = buffered.readNBytes(SNIFF_BYTES);
+		buffered.reset();
+		InputFormat requested = config.getInputFormat();
+		if (FormatDetector.detect(prefix, requested) == InputFormat.JSON) {
+			if (!FormatDetector.allowsYamlFallback(filePath, requested)) {
+				action.accept(readJson(filePath, buffered, contentPrefix));
+				return;
+			}
+			// JSON holds a single document; keep its bytes for a possible YAML retry
+			byte[] content = ParserLimits.readDocument(filePath, buffered, config);
 			try {
-				jsonNode = yamlMapper.readTree(content);
+				action.accept(readTree(contentPrefix.capture(jsonMapper.createParser(content))));
+				return;
 			}
-			catch (JacksonException ex2) {
-				log.debug("Error parsing schema as YAML: {}, {}", filePath, ex2.getMessage());
-				throw new YamlValidationException(ex2, null, filePath);
+			catch (StreamConstraintsException ex) {
+				throw new YamlValidationException(ex, null, filePath);
 			}
+			catch (JacksonException ex) {
+				log.debug("Error parsing file as JSON, trying YAML: {}, {}", filePath, ex.getMessage());
+			}
+			readYamlDocuments(filePath, yamlParser(filePath, yamlMapper.createParser(content), contentPrefix), action);
+			return;
 		}
-		return jsonNode;
+		readYamlDocuments(filePath, yamlParser(filePath, yamlMapper.createParser(buffered), contentPrefix), action);
 	}
 
 	/**
-	 * Parses content as either JSON or YAML into a JsonNode. Attempts JSON parsing first,
-	 * falls back to YAML if JSON parsing fails.
+	 * Parses the content of a file like
+	 * {@link #readDocuments(String, InputStream, ContentPrefix, Consumer)}, reading it
+	 * again from the start for a YAML retry instead of holding a copy of it. With a
+	 * projected schema, only the parts of each document the schema can look at are built;
+	 * a JSON document that does not parse that way is parsed again in full, so errors read
+	 * as before.
 	 * @param filePath Path to the file being parsed (used for error reporting)
-	 * @param inputStream InputStream of the content to parse
-	 * @return Parsed JsonNode list
+	 * @param content Content of the file
+	 * @param projected The given schema and its projection, or null to build documents in
+	 * full
+	 * @param contentPrefix Collects the first key values of each document
+	 * @param action Receives each parsed document
 	 * @throws YamlValidationException if content cannot be parsed as either JSON or YAML
 	 */
-	private List<JsonNode> getYamlJsonNode(String filePath, InputStream inputStream)
-			throws YamlValidationException, IOException {
-		List<JsonNode> docs = new ArrayList<>();
-		byte[] content = inputStream.readAllBytes();
+	private void readDocuments(String filePath, FileContent content, ProjectedSchema projected,
+			ContentPrefix contentPrefix, Consumer<JsonNode> action) throws YamlValidationException, IOException {
+		byte[] prefix;
+		try (InputStream is = content.newStream()) {
+			prefix = is.readNBytes(SNIFF_BYTES);
+		}
+		InputFormat requested = config.getInputFormat();
+		if (FormatDetector.detect(prefix, requested) == InputFormat.JSON) {
+			if (projected != null && readProjectedJson(filePath, content, projected, action)) {
+				return;
+			}
+			if (!FormatDetector.allowsYamlFallback(filePath, requested)) {
+				try (InputStream is = content.newStream()) {
+					action.accept(readJson(filePath, is, contentPrefix));
+				}
+				return;
+			}
+			JsonNode fileNode = readJsonOrNull(filePath, content, contentPrefix);
+			if (fileNode != null) {
+				action.accept(fileNode);
+				return;
+			}
+		}
+		try (InputStream is = content.newStream()) {
+			JsonParser parser = yamlParser(filePath, yamlMapper.createParser(is), contentPrefix);
+			if (projected != null) {
+				readProjectedYamlDocuments(filePath, content, parser, projected, action);
+			}
+			else {
+				readYamlDocuments(filePath, parser, action);
+			}
+		}
+	}
+
+	private boolean readProjectedJson(String filePath, FileContent content, ProjectedSchema projected,
+			Consumer<JsonNode> action) throws IOException {
+		JsonNode fileNode;
+		try (InputStream is = content.newStream(); JsonParser parser = jsonMapper.createParser(is)) {
+			if (parser.nextToken() == null) {
+				return false;
+			}
+			fileNode = ProjectedReader.read(parser, jsonMapper, projected.projection());
+			if (parser.nextToken() != null) {
+				return false;
+			}
+		}
+		catch (JacksonException ex) {
+			log.debug("Error parsing file as projected JSON: {}, {}", filePath, ex.getMessage());
+			return false;
+		}
+		action.accept(withDeclaredSchema(filePath, content, jsonMapper, projected, 0, fileNode));
+		return true;
+	}
+
+	private void readProjectedYamlDocuments(String filePath, FileContent content, JsonParser parser,
+			ProjectedSchema projected, Consumer<JsonNode> action) throws IOException {
+		try (parser) {
+			int count = 0;
+			while (parser.nextToken() != null) {
+				JsonNode document = ProjectedReader.read(parser, yamlMapper, projected.projection());
+				action.accept(withDeclaredSchema(filePath, content, yamlMapper, projected, count, document));
+				count++;
+			}
+			log.debug("Parsed {} projected YAML documents from {}", count, filePath);
+		}
+		catch (JacksonException ex) {
+			log.debug("Error parsing file as YAML: {}, {}", filePath, ex.getMessage());
+			throw new YamlValidationException(ex, null, filePath);
+		}
+	}
+
+	/**
+	 * Returns a projected document as is, or the full document when validation will use
+	 * its {@code $schema} header and that names another schema than the projected one.
+	 */
+	private JsonNode withDeclaredSchema(String filePath, FileContent content, ObjectMapper mapper,
+			ProjectedSchema projected, int index, JsonNode document) throws IOException {
+		String declared = config.isSchemaOverride() ? null : getSchemaPathFromNode(filePath, document);
+		if (declared == null || declared.equals(projected.schemaPath())) {
+			return document;
+		}
+		return ProjectedReader.readDocument(content, mapper, index);
+	}
+
+	/**
+	 * Returns the given schema with its projection when projection parsing is on.
+	 * @param schemaPath The given schema, or null
+	 * @return the schema and a projection that keeps the {@code $schema} header, or null
+	 * to build documents in full
+	 */
+	private ProjectedSchema projectedSchema(String schemaPath) {
+		if (!config.isProjection() || schemaPath == null) {
+			return null;
+		}
 		try {
-			return List.of(jsonMapper.readTree(content));
+			return new ProjectedSchema(schemaPath, schemaCache.projection(schemaPath).keeping("$schema"));
+		}
+		catch (RuntimeException ex) {
+			log.debug("No projection for schema {}: {}", schemaPath, ex.getMessage());
+			return null;
+		}
+	}
+
+	private JsonNode readJsonOrNull(String filePath, FileContent content, ContentPrefix contentPrefix)
+			throws IOException {
+		try (InputStream is = content.newStream()) {
+			return readTree(contentPrefix.capture(jsonMapper.createParser(is)));
+		}
+		catch (StreamConstraintsException ex) {
+			// Over a limit: YAML would not read it either
+			throw new YamlValidationException(ex, null, filePath);
 		}
 		catch (JacksonException ex) {
 			log.debug("Error parsing file as JSON, trying YAML: {}, {}", filePath, ex.getMessage());
-			try {
-				// Jackson 3 approach: use readValues() for multi-document YAML
-				docs = yamlMapper.readValues(yamlMapper.createParser(content), JsonNode.class).readAll();
-				log.debug("Parsed {} YAML documents from {}", docs.size(), filePath);
-			}
-			catch (JacksonException ex2) {
-				log.debug("Error parsing file as YAML: {}, {}", filePath, ex2.getMessage());
-				throw new YamlValidationException(ex2, null, filePath);
+			return null;
+		}
+	}
+
+	private JsonNode readJson(String filePath, InputStream inputStream, ContentPrefix contentPrefix) {
+		try {
+			return readTree(contentPrefix.capture(jsonMapper.createParser(inputStream)));
+		}
+		catch (JacksonException ex) {
+			log.debug("Error parsing file as JSON: {}, {}", filePath, ex.getMessage());
+			throw new YamlValidationException(ex, null, filePath);
+		}
+	}
+
+	/**
+	 * Reads the single JSON document of a parser, as {@code readTree} of the input
+	 * would: trailing tokens fail and empty input reads as a missing node.
+	 */
+	private JsonNode readTree(JsonParser parser) {
+		try (parser) {
+			JsonNode fileNode = jsonMapper.readTree(parser);
+			return (fileNode != null) ? fileNode : MissingNode.getInstance();
+		}
+	}
+
+	private JsonParser yamlParser(String filePath, JsonParser parser, ContentPrefix contentPrefix) {
+		return contentPrefix.capture(ParserLimits.limitYaml(parser, filePath, config));
+	}
+
+	private void readYamlDocuments(String filePath, JsonParser parser, Consumer<JsonNode> action)
+			throws IOException {
+		// Jackson 3 approach: use readValues() for multi-document YAML
+		try (MappingIterator<JsonNode> documents = yamlMapper.readValues(parser, JsonNode.class)) {
+			int count = 0;
+			while (documents.hasNextValue()) {
+				action.accept(documents.nextValue());
+				count++;
 			}
+			log.debug("Parsed {} YAML documents from {}", count, filePath);
+		}
+		catch (JacksonException ex) {
+			log.debug("Error parsing file as YAML: {}, {}", filePath, ex.getMessage());
+			throw new YamlValidationException(ex, null, filePath);
 		}
-		return docs;
 	}
 
 	/**
@@ -284,122 +675,172 @@ public class YamlSchemaValidator {
 
 		String detectedSchemaPath = yamlSchemaNode.textValue();
 		log.debug("Using schema URL from YAML: {}", detectedSchemaPath);
-		if (!isHttpUrl(detectedSchemaPath)) {
-			detectedSchemaPath = new File(new File(yamlPath).getParentFile(), detectedSchemaPath).getPath();
+		return resolveSchemaPath(yamlPath, detectedSchemaPath);
+	}
+
+	private static String resolveSchemaPath(String yamlPath, String schemaPath) {
+		if (SchemaLoader.isHttpUrl(schemaPath)) {
+			return schemaPath;
 		}
-		return detectedSchemaPath;
+		return new File(new File(yamlPath).getParentFile(), schemaPath).getPath();
 	}
 
 	/**
-	 * Retrieves schema content from either a local file or HTTP URL.
-	 * @param schemaPath Path or URL to the schema
-	 * @return Schema content as string
-	 * @throws YamlValidationException if schema cannot be retrieved
+	 * Streams the tokens of every document, reading only top-level {@code $schema} values
+	 * and the scalar values of the first few top-level keys, and skipping everything
+	 * else. A document without a header and a schema given is detected from its path
+	 * mapping or those key values, which needs no catalog.
+	 * @param filePath Path to the file being scanned
+	 * @param inputStream Content of the file
+	 * @param references Receives the resolved {@code $schema} values and the schemas
+	 * detected without the catalog
+	 * @param detect Whether documents without a header are detected here, starting to
+	 * load the catalog at the first one that is not
+	 * @return true if the file is empty or some document has no {@code $schema} header
+	 * and, when detecting, no schema detected without the catalog
 	 */
-	private String getSchema(String schemaPath) {
-		if (isHttpUrl(schemaPath)) {
-			return fetchSchemaFromUrl(schemaPath);
-		}
-		else {
-			return readSchemaFromFile(schemaPath);
+	private boolean scanSchemaHeaders(String filePath, InputStream inputStream, Set<String> references,
+			boolean detect) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(inputStream, SNIFF_BYTES);
+		buffered.mark(SNIFF_BYTES);
+		byte[] prefix = buffered.readNBytes(SNIFF_BYTES);
+		buffered.reset();
+		boolean json = FormatDetector.detect(prefix, config.getInputFormat()) == InputFormat.JSON;
+		boolean needsFallback = false;
+		int documents = 0;
+		int contentKeys = detect ? schemaDetector.contentKeys() : 0;
+		try (JsonParser parser = json ? jsonMapper.createParser(buffered) : yamlMapper.createParser(buffered)) {
+			for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+				documents++;
+				Map<String, String> fields = new LinkedHashMap<>();
+				String header = (token == JsonToken.START_OBJECT) ? readSchemaHeader(parser, fields, contentKeys)
+						: null;
+				parser.skipChildren();
+				String detected = (detect && !StringUtils.hasLength(header))
+						? schemaDetector.detectLocally(filePath, fields) : null;
+				if (StringUtils.hasLength(header)) {
+					references.add(resolveSchemaPath(filePath, header));
+				}
+				else if (detected != null) {
+					references.add(detected);
+				}
+				else if (!needsFallback) {
+					needsFallback = true;
+					if (detect) {
+						schemaDetector.preload();
+					}
+				}
+			}
 		}
+		return needsFallback || documents == 0;
 	}
 
-	private boolean isHttpUrl(String schemaPath) {
-		return schemaPath.startsWith("http://") || schemaPath.startsWith("https://");
+	private static String readSchemaHeader(JsonParser parser, Map<String, String> fields, int contentKeys) {
+		String header = null;
+		int keys = 0;
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if (value == JsonToken.VALUE_STRING && header == null && "$schema".equals(name)) {
+				header = parser.getString();
+			}
+			else if (keys < contentKeys && value != null && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+				fields.put(name, parser.getString());
+			}
+			else {
+				parser.skipChildren();
+			}
+			keys++;
+		}
+		return header;
 	}
 
 	/**
-	 * Fetches schema content from a HTTP(S) URL. Supports SSL certificate validation
-	 * bypass if configured.
-	 * @param schemaPath URL to fetch the schema from
-	 * @return Schema content as string
-	 * @throws YamlValidationException if schema cannot be fetched
+	 * The schemas a file refers to before auto-detection.
+	 *
+	 * @param schemas the schemas from {@code $schema} headers and the given schema
+	 * @param needsDetection whether some document has neither and falls back to
+	 * auto-detection
 	 */
-	private String fetchSchemaFromUrl(String schemaPath) {
-		try {
-			HttpClient httpClient = createHttpClient();
+	public record SchemaReferences(Set<String> schemas, boolean needsDetection) {
+	}
 
-			HttpRequest httpRequest = createHttpRequest(schemaPath);
+	/**
+	 * A given schema with the parts of a document it can look at.
+	 *
+	 * @param schemaPath the schema path or URL
+	 * @param projection the projection of the schema
+	 */
+	private record ProjectedSchema(String schemaPath, Projection projection) {
+	}
 
-			HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+	/**
+	 * Reads the documents of an input, collecting their first key values into the
+	 * {@link ContentPrefix}, and passes each to an action.
+	 */
+	@FunctionalInterface
+	private interface DocumentReader {
 
-			if (response.statusCode() != HTTP_SUCCESS_STATUS) {
-				String msg = "HTTP request failed with status code " + response.statusCode() + " for " + schemaPath;
-				log.debug(msg);
-				throw new YamlValidationException(msg, null, schemaPath);
-			}
+		void read(ContentPrefix contentPrefix, Consumer<JsonNode> action) throws IOException;
 
-			return response.body();
-		}
-		catch (IOException | InterruptedException ex) {
-			String msg = "Error fetching schema from URL: " + schemaPath;
-			Throwable cause = ex;
-			if (ex instanceof IOException && ex.getCause() != null) {
-				cause = ex.getCause();
-			}
-			log.error("{}, {}", msg, cause.getMessage());
-			throw new YamlValidationException(cause, null, schemaPath);
-		}
 	}
 
-	private HttpClient createHttpClient() {
-		HttpClient.Builder builder = HttpClient.newBuilder()
-			.followRedirects(HttpClient.Redirect.NORMAL)
-			.connectTimeout(config.getHttpTimeout());
+	/**
+	 * Names per-document results as they arrive and forwards them to the consumer.
+	 */
+	private static final class DocumentResults {
 
-		if (config.isIgnoreSslErrors()) {
-			try {
-				SSLContext sslContext = SSLContext.getInstance("TLS");
-				sslContext.init(null, new TrustManager[] { new X509TrustManager() {
-					@Override
-					public void checkClientTrusted(X509Certificate[] chain, String authType) {
-					}
+		private final String sourceName;
 
-					@Override
-					public void checkServerTrusted(X509Certificate[] chain, String authType) {
-					}
+		private final BiConsumer<String, OutputUnit> consumer;
 
-					@Override
-					public X509Certificate[] getAcceptedIssuers() {
-						return new X509Certificate[0];
-					}
-				} }, new SecureRandom());
+		private OutputUnit first;
 
-				builder.sslContext(sslContext).sslParameters(new SSLParameters());
+		private int count;
+
+		DocumentResults(String sourceName, BiConsumer<String, OutputUnit> consumer) {
+			this.sourceName = sourceName;
+			this.consumer = consumer;
+		}
+
+		void add(OutputUnit result) {
+			this.count++;
+			if (this.count == 1) {
+				this.first = result;
+				return;
 			}
-			catch (NoSuchAlgorithmException | KeyManagementException ex) {
-				log.warn("Failed to initialize SSL context for ignoring certificate validation: {}", ex.getMessage());
+			if (this.count == 2) {
+				this.consumer.accept(this.sourceName + "-1", this.first);
+				this.first = null;
 			}
+			this.consumer.accept(this.sourceName + "-" + this.count, result);
 		}
 
-		return builder.build();
-	}
-
-	private HttpRequest createHttpRequest(String schemaPath) {
-		return HttpRequest.newBuilder().uri(URI.create(schemaPath)).GET().build();
-	}
-
-	/**
-	 * Reads schema content from a local file.
-	 * @param schemaPath Path to the schema file
-	 * @return Schema content as string
-	 * @throws YamlValidationException if file cannot be read
-	 */
-	private String readSchemaFromFile(String schemaPath) {
-		try (InputStream is = new FileInputStream(schemaPath)) {
-			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
-		}
-		catch (FileNotFoundException ex) {
-			String msg = "NoSuchFileException: " + schemaPath;
-			log.error(msg);
-			throw new YamlValidationException(msg, null, schemaPath);
+		/**
+		 * Reports a read error after the results so far, under the number of the document
+		 * that failed, or under the source name if no document was read.
+		 */
+		void fail(OutputUnit error) {
+			if (this.count == 0) {
+				this.consumer.accept(this.sourceName, error);
+				return;
+			}
+			if (this.count == 1) {
+				this.consumer.accept(this.sourceName + "-1", this.first);
+				this.first = null;
+			}
+			this.consumer.accept(this.sourceName + "-" + (this.count + 1), error);
 		}
-		catch (IOException ex) {
-			String msg = "Error reading schema from file: " + schemaPath;
-			log.error("{}, {}", msg, ex.getMessage());
-			throw new YamlValidationException(ex, null, schemaPath);
+
+		void finish() {
+			if (this.count == 0) {
+				this.consumer.accept(this.sourceName, genericError("No Nodes found in YAML file"));
+			}
+			else if (this.count == 1) {
+				this.consumer.accept(this.sourceName, this.first);
+			}
 		}
+
 	}
 
 }
@@ -3,18 +3,31 @@ package org.alexmond.yaml.validator;
 import com.networknt.schema.output.OutputUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.config.ReportType;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
 import org.alexmond.yaml.validator.output.FilesOutput;
+import org.alexmond.yaml.validator.schema.SchemaBundleWriter;
+import org.alexmond.yaml.validator.schema.SchemaLoader;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 /**
  * Spring Boot Application Runner that handles YAML/JSON schema validation. This runner
@@ -26,12 +39,20 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class YamlSchemaValidatorRunner implements ApplicationRunner {
 
+	private static final String BUNDLE_COMMAND = "bundle";
+
+	private static final String CATALOG_ARGUMENT = "catalog";
+
 	private final YamlSchemaValidatorConfig config;
 
 	private final YamlSchemaValidator yamlSchemaValidator;
 
 	private final Environment environment;
 
+	private final ValidationExecutor validationExecutor;
+
+	private final SchemaBundleWriter schemaBundleWriter;
+
 	/**
 	 * Executes the validation process when the application starts. Handles command line
 	 * arguments, validates configuration, processes input files, and outputs results in
@@ -60,42 +81,42 @@ public class YamlSchemaValidatorRunner implements ApplicationRunner {
 			printHelp();
 			return null;
 		}
+		List<String> arguments = args.getNonOptionArgs();
+		if (!arguments.isEmpty() && arguments.get(0).equals(BUNDLE_COMMAND)) {
+			return bundle(arguments.subList(1, arguments.size()));
+		}
 		String configError = validateConfig(args);
 		if (configError != null) {
 			System.out.println("Configuration error:" + configError);
 			printHelp();
 			return null;
 		}
-		Map<String, OutputUnit> allResultsl = new LinkedHashMap<>();
 		List<String> files = args.getNonOptionArgs();
 		if (config.getFiles() != null && !config.getFiles().isEmpty()) {
 			files = config.getFiles();
 		}
+		// If no files or "-" is present, we read from stdin once; "-" is never opened
+		// as a file
+		boolean readStdin = files.isEmpty() || files.contains("-");
+		files = files.stream().filter((f) -> !f.equals("-")).toList();
+		Set<String> deferred = prepareSchemas(files, readStdin);
 
-		if (files.isEmpty() || files.contains("-")) {
+		if (config.isStream()) {
+			return validateStreaming(files, readStdin);
+		}
+
+		Map<String, OutputUnit> allResultsl = new LinkedHashMap<>();
+		if (readStdin) {
 			try {
-				// If "-" is present in the middle of file list, we should probably only
-				// read from stdin once.
-				// For simplicity, if no files or "-" is present, we read from stdin.
 				var result = yamlSchemaValidator.validate(System.in, "stdin", config.getSchema());
 				allResultsl.putAll(result);
 			}
 			catch (RuntimeException ex) {
 				log.error("Unexpected error during validation of stdin", ex);
 			}
-			// Remove "-" from files to avoid trying to open it as a file later
-			files.removeIf((f) -> f.equals("-"));
 		}
 
-		files.forEach((file) -> {
-			try {
-				var result = yamlSchemaValidator.validate(file, config.getSchema());
-				allResultsl.putAll(result);
-			}
-			catch (RuntimeException ex) {
-				log.error("Unexpected error during validation", ex);
-			}
-		});
+		validateFiles(files, deferred).forEach(allResultsl::putAll);
 		FilesOutput filesOutput = new FilesOutput(allResultsl);
 
 		String reportContent = switch (config.getReportType()) {
@@ -121,6 +142,235 @@ public class YamlSchemaValidatorRunner implements ApplicationRunner {
 		return filesOutput;
 	}
 
+	/**
+	 * Validates in streaming mode: each document's text entry is printed as soon as it is
+	 * validated and only failing results are retained, so unbounded stdin and very large
+	 * multi-document files run in memory bounded by the largest document. Sources are
+	 * processed in order and the overall verdict is printed last.
+	 * @param files Files to validate
+	 * @param readStdin Whether stdin is validated before the files
+	 * @return the failing results, which determine the exit code
+	 */
+	private FilesOutput validateStreaming(List<String> files, boolean readStdin) {
+		Map<String, OutputUnit> failures = new LinkedHashMap<>();
+		BiConsumer<String, OutputUnit> printer = (name, output) -> {
+			System.out.print(FilesOutput.toColoredString(name, output, config.isColor()));
+			System.out.flush();
+			if (!output.isValid()) {
+				failures.put(name, output);
+			}
+		};
+		if (readStdin) {
+			try {
+				yamlSchemaValidator.validate(System.in, "stdin", config.getSchema(), printer);
+			}
+			catch (RuntimeException ex) {
+				log.error("Unexpected error during validation of stdin", ex);
+			}
+		}
+		for (String file : files) {
+			try {
+				yamlSchemaValidator.validate(file, config.getSchema(), printer);
+			}
+			catch (RuntimeException ex) {
+				log.error("Unexpected error during validation", ex);
+			}
+		}
+		FilesOutput filesOutput = new FilesOutput(failures);
+		System.out.print(filesOutput.toColoredSummary(config.isColor()));
+		return filesOutput;
+	}
+
+	/**
+	 * Validates files concurrently, starting with those whose schemas need no download so
+	 * they are not held up behind remote schemas that are still being prefetched.
+	 * @param files Files to validate
+	 * @param deferred Files whose schemas are still downloading or not yet detected
+	 * @return the results of each file, in the order of {@code files}
+	 */
+	private List<Map<String, OutputUnit>> validateFiles(List<String> files, Set<String> deferred) {
+		// Stable sort: ready files first, each group in input order
+		List<Integer> schedule = IntStream.range(0, files.size())
+			.boxed()
+			.sorted(Comparator.comparing((index) -> deferred.contains(files.get(index))))
+			.toList();
+		List<Callable<Map<String, OutputUnit>>> tasks = schedule.stream()
+			.map((index) -> (Callable<Map<String, OutputUnit>>) () -> validateFile(files.get(index)))
+			.toList();
+		List<Map<String, OutputUnit>> scheduled = validationExecutor.invokeAll(tasks);
+		List<Map<String, OutputUnit>> results = new ArrayList<>(Collections.nCopies(files.size(), null));
+		for (int i = 0; i < schedule.size(); i++) {
+			results.set(schedule.get(i), scheduled.get(i));
+		}
+		return results;
+	}
+
+	/**
+	 * Scans the inputs for the schemas they refer to ({@code --schema}, top-level
+	 * {@code $schema} headers and auto-detection) and gets those schemas ready before
+	 * validation. With {@code eagerSchemas} every schema is compiled up front; with
+	 * {@code prefetch} remote schemas that are not in the disk cache start downloading in
+	 * the background while validation proceeds.
+	 * <p>
+	 * The catalog is only loaded when the scan finds a document that needs
+	 * auto-detection, and then in the background from that point. With {@code prefetch}
+	 * the files needing it are validated after the others, and their detected schemas are
+	 * prefetched once the catalog arrives, so validation never waits for the catalog
+	 * while other files are ready.
+	 * @param files Files to scan for schema references
+	 * @param readStdin Whether stdin is validated, which uses the configured schema
+	 * @return the files whose schemas are still downloading or not yet detected
+	 */
+	private Set<String> prepareSchemas(List<String> files, boolean readStdin) {
+		if (!config.isEagerSchemas() && !config.isPrefetch()) {
+			return Set.of();
+		}
+		List<Callable<YamlSchemaValidator.SchemaReferences>> scans = files.stream()
+			.map((file) -> (Callable<YamlSchemaValidator.SchemaReferences>) () -> yamlSchemaValidator
+				.declaredSchemas(file, config.getSchema()))
+			.toList();
+		List<YamlSchemaValidator.SchemaReferences> references = validationExecutor.invokeAll(scans);
+		Set<String> schemas = new LinkedHashSet<>();
+		if (readStdin && config.getSchema() != null) {
+			schemas.add(config.getSchema());
+		}
+		List<String> detecting = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			schemas.addAll(references.get(i).schemas());
+			if (references.get(i).needsDetection()) {
+				detecting.add(files.get(i));
+			}
+		}
+		if (config.isEagerSchemas()) {
+			schemas.addAll(detectSchemas(detecting));
+			compileSchemas(schemas);
+			return Set.of();
+		}
+		Set<String> pending = prefetchSchemas(schemas);
+		Set<String> deferred = new HashSet<>(detecting);
+		for (int i = 0; i < files.size(); i++) {
+			if (!Collections.disjoint(references.get(i).schemas(), pending)) {
+				deferred.add(files.get(i));
+			}
+		}
+		if (!detecting.isEmpty()) {
+			validationExecutor.runAsync(() -> prefetchSchemas(detectSchemas(detecting)));
+		}
+		return deferred;
+	}
+
+	/**
+	 * Detects the schemas of files from their paths, waiting for the catalog.
+	 * @param files Files needing auto-detection
+	 * @return the distinct detected schemas
+	 */
+	private Set<String> detectSchemas(List<String> files) {
+		Set<String> detected = new LinkedHashSet<>();
+		for (String file : files) {
+			try {
+				String schema = yamlSchemaValidator.detectSchema(file);
+				if (schema != null) {
+					detected.add(schema);
+				}
+			}
+			catch (RuntimeException ex) {
+				// Reported again when the file is validated
+				log.debug("Error detecting the schema of {}: {}", file, ex.getMessage());
+			}
+		}
+		return detected;
+	}
+
+	/**
+	 * Compiles the schemas concurrently into the shared schema cache. Failures are left
+	 * for the validation of the affected files to report.
+	 * @param schemas Schemas to compile
+	 */
+	private void compileSchemas(Set<String> schemas) {
+		List<Callable<Boolean>> compiles = schemas.stream()
+			.map((schema) -> (Callable<Boolean>) () -> yamlSchemaValidator.compileSchema(schema))
+			.toList();
+		long compiled = validationExecutor.invokeAll(compiles).stream().filter(Boolean::booleanValue).count();
+		log.debug("Eagerly compiled {} of {} schemas", compiled, schemas.size());
+	}
+
+	/**
+	 * Starts loading, in the background, every schema that is not available without a
+	 * download. Validation of a file using one of them waits on the same load instead of
+	 * starting another.
+	 * @param schemas Schemas referenced by the inputs
+	 * @return the schemas being downloaded
+	 */
+	private Set<String> prefetchSchemas(Set<String> schemas) {
+		Set<String> pending = new LinkedHashSet<>();
+		for (String schema : schemas) {
+			if (!yamlSchemaValidator.isSchemaAvailable(schema)) {
+				pending.add(schema);
+				validationExecutor.runAsync(() -> yamlSchemaValidator.compileSchema(schema));
+			}
+		}
+		log.debug("Prefetching {} of {} schemas", pending.size(), schemas.size());
+		return pending;
+	}
+
+	/**
+	 * Runs the {@code bundle} command: writes the schemas named by the arguments, with
+	 * every remote document they refer to, to an offline schema bundle for
+	 * {@code schemaBundle}.
+	 * @param args The output zip file or directory, followed by schema URLs, files whose
+	 * schemas are bundled, or {@code catalog} for every schema in the catalog
+	 * @return the schemas that could not be bundled, which determine the exit code
+	 */
+	private FilesOutput bundle(List<String> args) {
+		if (args.size() < 2) {
+			System.out.println("Usage: bundle <output.zip|directory> <schema-url|file|catalog> ...");
+			return null;
+		}
+		Set<String> schemas = new LinkedHashSet<>();
+		List<String> files = new ArrayList<>();
+		for (String arg : args.subList(1, args.size())) {
+			if (arg.equals(CATALOG_ARGUMENT)) {
+				schemas.addAll(schemaBundleWriter.catalogSchemas());
+			}
+			else if (SchemaLoader.isHttpUrl(arg)) {
+				schemas.add(arg);
+			}
+			else {
+				files.add(arg);
+			}
+		}
+		List<Callable<Set<String>>> scans = files.stream()
+			.map((file) -> (Callable<Set<String>>) () -> yamlSchemaValidator.schemaReferences(file, config.getSchema()))
+			.toList();
+		validationExecutor.invokeAll(scans).forEach(schemas::addAll);
+
+		Map<String, OutputUnit> failures = new LinkedHashMap<>();
+		try {
+			SchemaBundleWriter.Result result = schemaBundleWriter.write(schemas, Path.of(args.get(0)));
+			result.failures().forEach((uri, message) -> failures.put(uri, YamlSchemaValidator.genericError(message)));
+			System.out.println("Bundled " + result.documents() + " schema documents into " + args.get(0));
+		}
+		catch (IOException ex) {
+			log.error("Failed to write schema bundle {}", args.get(0), ex);
+			failures.put(args.get(0), YamlSchemaValidator.genericError(ex.getMessage()));
+		}
+		FilesOutput filesOutput = new FilesOutput(failures);
+		if (!failures.isEmpty()) {
+			System.out.println(filesOutput.toColoredString(config.isColor()));
+		}
+		return filesOutput;
+	}
+
+	private Map<String, OutputUnit> validateFile(String file) {
+		try {
+			return yamlSchemaValidator.validate(file, config.getSchema());
+		}
+		catch (RuntimeException ex) {
+			log.error("Unexpected error during validation", ex);
+			return Map.of();
+		}
+	}
+
 	/**
 	 * Displays usage instructions and available command line options. Exits the
 	 * application with status code 0 after printing the help message.
@@ -128,6 +378,7 @@ public class YamlSchemaValidatorRunner implements ApplicationRunner {
 	private void printHelp() {
 		String helpText = """
 				Usage: java -jar yaml-schema-validator.jar [options] [<file1> <file2> ...]
+				       java -jar yaml-schema-validator.jar bundle <output.zip|dir> <schema-url|file|catalog> ...
 
 				Note: If no files are provided, or if '-' is used as a filename, the tool reads from stdin.
 
@@ -138,8 +389,34 @@ public class YamlSchemaValidatorRunner implements ApplicationRunner {
 				  --report-type=<type>                 Output format: text (default), json, yaml, junit, sarif
 				  --report-file-name=<name>            Write report to the given file (prints to stdout if not set)
 				  --http-timeout=<dur>                 HTTP timeout for fetching remote schemas (e.g., 10s, 2m). Default: 10s
+				  --content-detect=<true|false>        Detect schemas from top-level keys such as apiVersion/kind (default: false)
+				  --content-detect-keys=<n>            Top-level keys of each document read for content detection (default: 16)
+				  --schema-mappings=<path>             Mapping file from file globs to schemas, tried before the Schema Store catalog
+				  --catalog-connect-timeout=<dur>      Time to reach the catalog host before using the bundled catalog (default: 1s)
 				  --ignore-ssl-errors=<true|false>     Ignore SSL certificate validation errors when fetching schemas
 				  --color=<true|false>                 Use ANSI colors in text output (default: enabled)
+				  --parallelism=<n|auto>               Number of files validated concurrently (default: 1)
+				  --max-documents-in-flight=<n>        Parsed documents of one file validated at once (default: 16)
+				  --input-format=<auto|json|yaml>      Parser for input files (default: auto, detected from content)
+				  --stream=<true|false>                Print each result as soon as it is validated (text only)
+				  --stream-arrays=<true|false>         Validate a top-level array element by element for array schemas
+				  --projection=<true|false>            Skip parsing document parts the --schema never looks at
+				  --map-threshold=<size>               Memory-map input files from this size on (default: 4MB)
+				  --max-document-size=<size>           Largest input document (default: 256MB)
+				  --max-nesting-depth=<n>              Deepest nesting in an input document (default: 500)
+				  --max-aliases=<n>                    Most aliases to YAML collections in a document (default: 50)
+				  --max-string-length=<n>              Longest string in an input document (default: 20000000)
+				  --max-documents=<n>                  Most documents in one input file (default: unlimited)
+				  --eager-schemas=<true|false>         Compile all referenced schemas in parallel before validating
+				  --prefetch=<true|false>              Fetch remote schemas in the background (default: false)
+				  --cache-dir=<path>                   Cache for downloaded schemas (default: ~/.cache/yj-schema-validator)
+				  --cache-ttl=<dur>                    Age after which cached downloads are revalidated (default: 24h)
+				  --offline=<true|false>               Serve remote schemas from the cache only, never use the network
+				  --fetch-failure-ttl=<dur>            How long failed downloads are remembered (default: whole run)
+				  --http-max-connections-per-host=<n>  Concurrent schema downloads per host (default: 4)
+				  --schema-bundle=<path>               Serve all remote schemas from a bundle, never use the network
+				  --schema-bundle-rewrites=<uri=path>  URI prefix rewrites for a directory bundle
+				  --warm-start=<true|false>            Reuse schemas and catalog parsed by the last run (default: true)
 				""";
 		System.out.println(helpText);
 	}
@@ -153,6 +430,9 @@ public class YamlSchemaValidatorRunner implements ApplicationRunner {
 		if (config.isSchemaOverride() && config.getSchema() == null) {
 			return "Schema path must be provided when schemaPathOverride is enabled";
 		}
+		if (config.isStream() && (config.getReportType() != ReportType.TEXT || config.getReportFileName() != null)) {
+			return "Streaming output requires the text report written to stdout";
+		}
 		return null;
 	}
 
@@ -0,0 +1,226 @@
+package org.alexmond.yaml.validator.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Compact binary form of the catalog that the build writes next to the bundled
+ * {@code schema-catalog.json}. It holds only the schema URL and file patterns of each
+ * entry, with every pattern already classified (base name or path, literal, specificity
+ * and literal suffix), so loading it needs one sequential read, no JSON parsing and no
+ * regular expressions until a pattern is first tried.
+ * <p>
+ * The format is a {@link DataOutputStream} stream: a magic number and version, the entry
+ * count, then per entry its URL, pattern count and patterns.
+ * <p>
+ * Run as a program it compiles a catalog:
+ * {@code CatalogIndexFile <catalog.json> <index>}.
+ */
+public final class CatalogIndexFile {
+
+	private static final int MAGIC = 0x594A4349;
+
+	private static final int VERSION = 1;
+
+	private static final int BASENAME_ONLY = 1;
+
+	private static final int LITERAL = 2;
+
+	private CatalogIndexFile() {
+	}
+
+	/**
+	 * Compiles a catalog JSON file into an index file.
+	 * @param args the catalog JSON path and the index path to write
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: CatalogIndexFile <catalog.json> <index>");
+		}
+		SchemaCatalog catalog = parseCatalog(JsonMapper.builder().build(), Files.readAllBytes(Path.of(args[0])));
+		try (OutputStream os = Files.newOutputStream(Path.of(args[1]))) {
+			write(catalog, os);
+		}
+	}
+
+	/**
+	 * Reads a catalog in JSON with a streaming parser, keeping only the {@code url} and
+	 * {@code fileMatch} of each entry and skipping everything else without building it.
+	 * @param jsonMapper the mapper creating the parser
+	 * @param content the catalog JSON
+	 * @return the catalog entries with their URL and file patterns
+	 */
+	static SchemaCatalog parseCatalog(JsonMapper jsonMapper, byte[] content) {
+		List<CatalogEntry> entries = new ArrayList<>();
+		try (JsonParser parser = jsonMapper.createParser(content)) {
+			if (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+					String name = parser.currentName();
+					if (parser.nextToken() == JsonToken.START_ARRAY && "schemas".equals(name)) {
+						readEntries(parser, entries);
+					}
+					else {
+						parser.skipChildren();
+					}
+				}
+			}
+		}
+		SchemaCatalog catalog = new SchemaCatalog();
+		catalog.setSchemas(entries);
+		return catalog;
+	}
+
+	/**
+	 * Writes the index of a catalog. Entries without a URL or file patterns are left out.
+	 * @param catalog the catalog
+	 * @param output the stream to write to; not closed
+	 * @throws IOException if writing fails
+	 */
+	static void write(SchemaCatalog catalog, OutputStream output) throws IOException {
+		List<CatalogEntry> entries = new ArrayList<>();
+		if (catalog.getSchemas() != null) {
+			for (CatalogEntry entry : catalog.getSchemas()) {
+				if (entry.getUrl() != null && entry.getFileMatch() != null) {
+					entries.add(entry);
+				}
+			}
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(entries.size());
+		for (CatalogEntry entry : entries) {
+			out.writeUTF(entry.getUrl());
+			out.writeInt(entry.getFileMatch().size());
+			for (String glob : entry.getFileMatch()) {
+				GlobPattern pattern = GlobPattern.compile(glob);
+				out.writeUTF(glob);
+				out.writeByte((pattern.isBasenameOnly() ? BASENAME_ONLY : 0) | (pattern.isLiteral() ? LITERAL : 0));
+				out.writeInt(pattern.specificity());
+				out.writeUTF(pattern.literalSuffix());
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads an index written by {@link #write(SchemaCatalog, OutputStream)}.
+	 * @param input the stream to read; not closed
+	 * @return the catalog entries and their patterns, in catalog order
+	 * @throws IOException if the stream is not a readable index of this version
+	 */
+	static Compiled read(InputStream input) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a catalog index of version " + VERSION);
+		}
+		int entryCount = in.readInt();
+		List<CatalogEntry> entries = new ArrayList<>(entryCount);
+		List<Map.Entry<GlobPattern, String>> patterns = new ArrayList<>();
+		for (int i = 0; i < entryCount; i++) {
+			String url = in.readUTF();
+			int patternCount = in.readInt();
+			List<String> globs = new ArrayList<>(patternCount);
+			for (int j = 0; j < patternCount; j++) {
+				String glob = in.readUTF();
+				int flags = in.readByte();
+				int specificity = in.readInt();
+				String literalSuffix = in.readUTF();
+				globs.add(glob);
+				patterns.add(Map.entry(GlobPattern.of(glob, (flags & BASENAME_ONLY) != 0, specificity, literalSuffix,
+						(flags & LITERAL) != 0), url));
+			}
+			CatalogEntry entry = new CatalogEntry();
+			entry.setUrl(url);
+			entry.setFileMatch(globs);
+			entries.add(entry);
+		}
+		SchemaCatalog catalog = new SchemaCatalog();
+		catalog.setSchemas(entries);
+		return new Compiled(catalog, patterns);
+	}
+
+	/**
+	 * Compiles the file patterns of a catalog, in catalog order.
+	 * @param catalog the catalog
+	 * @return the catalog with each pattern and the schema URL it selects
+	 */
+	static Compiled compile(SchemaCatalog catalog) {
+		List<Map.Entry<GlobPattern, String>> patterns = new ArrayList<>();
+		if (catalog.getSchemas() != null) {
+			for (CatalogEntry entry : catalog.getSchemas()) {
+				if (entry.getUrl() == null || entry.getFileMatch() == null) {
+					continue;
+				}
+				for (String glob : entry.getFileMatch()) {
+					patterns.add(Map.entry(GlobPattern.compile(glob), entry.getUrl()));
+				}
+			}
+		}
+		return new Compiled(catalog, patterns);
+	}
+
+	private static void readEntries(JsonParser parser, List<CatalogEntry> entries) {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			CatalogEntry entry = new CatalogEntry();
+			while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+				String name = parser.currentName();
+				JsonToken value = parser.nextToken();
+				if ("url".equals(name) && value == JsonToken.VALUE_STRING) {
+					entry.setUrl(parser.getString());
+				}
+				else if ("fileMatch".equals(name) && value == JsonToken.START_ARRAY) {
+					entry.setFileMatch(readStrings(parser));
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+			entries.add(entry);
+		}
+	}
+
+	private static List<String> readStrings(JsonParser parser) {
+		List<String> values = new ArrayList<>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.VALUE_STRING) {
+				values.add(parser.getString());
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * A catalog with its patterns compiled.
+	 *
+	 * @param catalog the catalog entries, with only their URL and file patterns
+	 * @param patterns every file pattern with the schema URL it selects, in catalog order
+	 */
+	record Compiled(SchemaCatalog catalog, List<Map.Entry<GlobPattern, String>> patterns) {
+	}
+
+}
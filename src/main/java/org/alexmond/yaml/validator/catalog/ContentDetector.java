@@ -0,0 +1,178 @@
+package org.alexmond.yaml.validator.catalog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the JSON Schema of a document from its content: the scalar values of a few
+ * top-level keys at the start of the document, such as {@code apiVersion} and
+ * {@code kind} of a Kubernetes manifest or the {@code openapi} version of an API
+ * description. The keys are read while the file is scanned with the streaming parser, so
+ * a schema is known before any document tree is built.
+ * <p>
+ * The rules come from the bundled {@code content-rules.json}, compiled once and tried in
+ * order; the first rule whose keys are all present with matching values wins. A value
+ * pattern lists alternatives separated by {@code |}, where {@code *} matches any text. A
+ * rule URL may name matched keys as {@code {key}} placeholders, replaced by the value in
+ * lower case with an API group shortened to its first label and {@code /} replaced by
+ * {@code -} ({@code networking.k8s.io/v1} becomes {@code networking-v1}), the file name
+ * form used by Kubernetes schema collections.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentDetector {
+
+	private static final String RULES_RESOURCE = "/content-rules.json";
+
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^}]+)}");
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final Object lock = new Object();
+
+	private volatile List<Rule> rules;
+
+	/**
+	 * Tests whether content detection is on: it needs both autodetection and
+	 * {@code contentDetect}.
+	 * @return true if documents are detected from their content
+	 */
+	public boolean isEnabled() {
+		return this.config.isAutoDetect() && this.config.isContentDetect() && this.config.getContentDetectKeys() > 0;
+	}
+
+	/**
+	 * The number of top-level keys at the start of a document that are read for
+	 * detection.
+	 * @return the key limit
+	 */
+	public int keyLimit() {
+		return this.config.getContentDetectKeys();
+	}
+
+	/**
+	 * Detects the schema URL for a document from its top-level key values.
+	 * @param fields the scalar values of the first top-level keys
+	 * @return the schema URL of the first matching rule, or null if content detection is
+	 * off or no rule matches
+	 */
+	public String detect(Map<String, String> fields) {
+		if (!isEnabled() || fields == null || fields.isEmpty()) {
+			return null;
+		}
+		for (Rule rule : rules()) {
+			if (rule.matches(fields)) {
+				String url = rule.url(fields);
+				log.debug("Detected {} content, schema {}", rule.name(), url);
+				return url;
+			}
+		}
+		return null;
+	}
+
+	private List<Rule> rules() {
+		List<Rule> current = this.rules;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.rules;
+				if (current == null) {
+					current = loadRules();
+					this.rules = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private static List<Rule> loadRules() {
+		List<Rule> rules = new ArrayList<>();
+		try (InputStream is = ContentDetector.class.getResourceAsStream(RULES_RESOURCE)) {
+			if (is == null) {
+				log.warn("Content detection rules {} not found", RULES_RESOURCE);
+				return rules;
+			}
+			for (JsonNode node : JsonMapper.builder().build().readTree(is).path("rules")) {
+				Map<String, Pattern> match = new LinkedHashMap<>();
+				for (Map.Entry<String, JsonNode> property : node.path("match").properties()) {
+					match.put(property.getKey(), valuePattern(property.getValue().asString()));
+				}
+				rules.add(new Rule(node.path("name").asString(), match, node.path("url").asString()));
+			}
+		}
+		catch (IOException | JacksonException ex) {
+			log.warn("Error reading content detection rules {}: {}", RULES_RESOURCE, ex.getMessage());
+		}
+		return rules;
+	}
+
+	private static Pattern valuePattern(String value) {
+		return Pattern.compile(List.of(value.split("\\|"))
+			.stream()
+			.map((alternative) -> List.of(alternative.split("\\*", -1))
+				.stream()
+				.map(Pattern::quote)
+				.collect(Collectors.joining(".*")))
+			.collect(Collectors.joining("|")));
+	}
+
+	private static String fileNameForm(String value) {
+		String lower = value.toLowerCase(Locale.ROOT);
+		int slash = lower.indexOf('/');
+		if (slash < 0) {
+			return lower;
+		}
+		String group = lower.substring(0, slash);
+		int dot = group.indexOf('.');
+		return ((dot < 0) ? group : group.substring(0, dot)) + "-" + lower.substring(slash + 1).replace('/', '-');
+	}
+
+	/**
+	 * A compiled content rule.
+	 *
+	 * @param name the rule name, for logging
+	 * @param match the value pattern each key must match
+	 * @param url the schema URL, possibly with {@code {key}} placeholders
+	 */
+	private record Rule(String name, Map<String, Pattern> match, String url) {
+
+		boolean matches(Map<String, String> fields) {
+			for (Map.Entry<String, Pattern> entry : this.match.entrySet()) {
+				String value = fields.get(entry.getKey());
+				if (value == null || !entry.getValue().matcher(value).matches()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		String url(Map<String, String> fields) {
+			Matcher matcher = PLACEHOLDER.matcher(this.url);
+			StringBuilder url = new StringBuilder();
+			while (matcher.find()) {
+				String value = fields.getOrDefault(matcher.group(1), "");
+				matcher.appendReplacement(url, Matcher.quoteReplacement(fileNameForm(value)));
+			}
+			matcher.appendTail(url);
+			return url.toString();
+		}
+
+	}
+
+}
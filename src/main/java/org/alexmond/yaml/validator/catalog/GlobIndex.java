@@ -0,0 +1,366 @@
+package org.alexmond.yaml.validator.catalog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index over catalog file-match globs that finds the most specific match for a path
+ * without trying every pattern in turn, and remembers what it found so later paths
+ * sharing a base name or a directory are answered from memory.
+ * <p>
+ * Patterns that depend only on the base name (those without a {@code /}, and
+ * {@code **}{@code /name} patterns) are indexed as follows, and the best match is
+ * memoized per base name:
+ * <ul>
+ * <li>patterns without wildcards are looked up by name in a hash map;</li>
+ * <li>other patterns are filed in a trie under their literal suffix (the text after the
+ * last wildcard, such as {@code .yml}) read backwards, so only patterns whose suffix the
+ * name ends with are ever tried;</li>
+ * <li>the few patterns ending in a wildcard share one combined regular expression.</li>
+ * </ul>
+ * The remaining path patterns are memoized per directory: the first file in a directory
+ * selects the patterns whose directory part can match it (or, when the last segment
+ * holds a {@code **}, one of its ancestors), and every file in the directory only tries
+ * those. The result is the one a linear scan would give: the match with the highest
+ * {@link GlobPattern#specificity()}, and on a tie the earliest in catalog order. Lookups
+ * are thread-safe.
+ */
+final class GlobIndex {
+
+	private static final String ANY_DEPTH = "**";
+
+	private static final Comparator<Candidate> BEST_FIRST = Comparator
+		.comparingInt((Candidate candidate) -> -candidate.glob().specificity())
+		.thenComparingInt(Candidate::order);
+
+	private final Map<String, Candidate> literalBasenames = new HashMap<>();
+
+	private final SuffixTrie basenameSuffixes = new SuffixTrie();
+
+	private final Alternation basenameRest;
+
+	private final List<DirectoryCandidate> directoryCandidates;
+
+	private final List<DirectoryCandidate> rootCandidates;
+
+	private final ConcurrentMap<String, Optional<Candidate>> byBasename = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, List<DirectoryCandidate>> byDirectory = new ConcurrentHashMap<>();
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private GlobIndex(List<Candidate> candidates) {
+		List<Candidate> basenameRest = new ArrayList<>();
+		List<DirectoryCandidate> directoryCandidates = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			GlobPattern glob = candidate.glob();
+			if (!dependsOnBasenameOnly(glob)) {
+				directoryCandidates.add(DirectoryCandidate.of(candidate));
+			}
+			else if (glob.isLiteral()) {
+				this.literalBasenames.merge(glob.literalSuffix(), candidate,
+						(first, second) -> better(first, second) ? first : second);
+			}
+			else if (!glob.literalSuffix().isEmpty()) {
+				this.basenameSuffixes.add(glob.literalSuffix(), candidate);
+			}
+			else {
+				basenameRest.add(candidate);
+			}
+		}
+		this.basenameSuffixes.sort();
+		this.basenameRest = Alternation.of(basenameRest);
+		directoryCandidates.sort(Comparator.comparing(DirectoryCandidate::candidate, BEST_FIRST));
+		this.directoryCandidates = List.copyOf(directoryCandidates);
+		this.rootCandidates = candidatesIn(null);
+	}
+
+	/**
+	 * Builds the index. Candidates are ranked by specificity, then by their position in
+	 * the list.
+	 * @param globs the patterns in catalog order, each with the schema URL it selects
+	 * @return the index
+	 */
+	static GlobIndex of(List<Map.Entry<GlobPattern, String>> globs) {
+		List<Candidate> candidates = new ArrayList<>(globs.size());
+		for (Map.Entry<GlobPattern, String> glob : globs) {
+			candidates.add(new Candidate(glob.getKey(), glob.getValue(), candidates.size()));
+		}
+		return new GlobIndex(candidates);
+	}
+
+	/**
+	 * Finds the schema URL of the most specific pattern matching a path.
+	 * @param path the file path (any separator style)
+	 * @return the schema URL, or null if no pattern matches
+	 */
+	String match(String path) {
+		String normalized = path.replace('\\', '/');
+		int slash = normalized.lastIndexOf('/');
+		String basename = normalized.substring(slash + 1);
+		String directory = (slash >= 0) ? normalized.substring(0, slash) : null;
+		Optional<Candidate> basenameMatch = this.byBasename.get(basename);
+		List<DirectoryCandidate> candidates = (directory != null) ? this.byDirectory.get(directory)
+				: this.rootCandidates;
+		this.lookups.increment();
+		if (basenameMatch != null && candidates != null) {
+			this.hits.increment();
+		}
+		if (basenameMatch == null) {
+			basenameMatch = this.byBasename.computeIfAbsent(basename,
+					(key) -> Optional.ofNullable(matchBasename(key)));
+		}
+		if (candidates == null) {
+			candidates = this.byDirectory.computeIfAbsent(directory, this::candidatesIn);
+		}
+		Candidate best = basenameMatch.orElse(null);
+		for (DirectoryCandidate candidate : candidates) {
+			if (!better(candidate.candidate(), best)) {
+				// Sorted best first, so no later candidate can win either
+				break;
+			}
+			if (candidate.candidate().glob().matchesTarget(normalized)) {
+				best = candidate.candidate();
+				break;
+			}
+		}
+		return (best != null) ? best.url() : null;
+	}
+
+	/**
+	 * Counts the lookups so far and those answered entirely from memory.
+	 * @return the lookup statistics
+	 */
+	SchemaDetector.Statistics statistics() {
+		return new SchemaDetector.Statistics(this.lookups.sum(), this.hits.sum());
+	}
+
+	private Candidate matchBasename(String basename) {
+		Candidate best = this.literalBasenames.get(basename);
+		best = this.basenameSuffixes.match(basename, best);
+		return pick(best, this.basenameRest.match(basename));
+	}
+
+	private List<DirectoryCandidate> candidatesIn(String directory) {
+		List<DirectoryCandidate> candidates = new ArrayList<>();
+		for (DirectoryCandidate candidate : this.directoryCandidates) {
+			if (candidate.mayMatchIn(directory)) {
+				candidates.add(candidate);
+			}
+		}
+		return List.copyOf(candidates);
+	}
+
+	/**
+	 * Tests whether a pattern is matched against the base name alone, or is
+	 * {@code **}{@code /name} with a single segment that cannot span directories, which
+	 * matches the same paths as {@code name} does against the base name.
+	 */
+	private static boolean dependsOnBasenameOnly(GlobPattern glob) {
+		if (glob.isBasenameOnly()) {
+			return true;
+		}
+		String pattern = glob.glob();
+		int nameStart = ANY_DEPTH.length() + 1;
+		return pattern.startsWith(ANY_DEPTH + "/") && pattern.indexOf('/', nameStart) < 0
+				&& pattern.indexOf(ANY_DEPTH, nameStart) < 0;
+	}
+
+	private static Candidate pick(Candidate current, Candidate other) {
+		return (other != null && better(other, current)) ? other : current;
+	}
+
+	private static boolean better(Candidate candidate, Candidate current) {
+		return current == null || BEST_FIRST.compare(candidate, current) < 0;
+	}
+
+	/**
+	 * An indexed pattern.
+	 *
+	 * @param glob the compiled pattern
+	 * @param url the schema URL it selects
+	 * @param order position in the catalog, breaking specificity ties
+	 */
+	private record Candidate(GlobPattern glob, String url, int order) {
+	}
+
+	/**
+	 * A path pattern with the directory test that decides whether it can match any file
+	 * in a given directory. The pattern's directory part is the text before its last
+	 * {@code /}; a trailing {@code **} there also matches no directories at all. When the
+	 * last segment holds a {@code **} it can span directories, so the test accepts a
+	 * directory if the directory part matches it or any of its ancestors.
+	 *
+	 * @param candidate the pattern
+	 * @param directories directory patterns, any of which admits a directory
+	 * @param anyDirectory whether every directory, and a path without one, is admitted
+	 * @param ancestors whether ancestors of the directory are tested too
+	 */
+	private record DirectoryCandidate(Candidate candidate, List<GlobPattern> directories, boolean anyDirectory,
+			boolean ancestors) {
+
+		static DirectoryCandidate of(Candidate candidate) {
+			String glob = candidate.glob().glob();
+			int slash = glob.lastIndexOf('/');
+			String directory = glob.substring(0, slash);
+			boolean ancestors = glob.indexOf(ANY_DEPTH, slash + 1) >= 0;
+			if (directory.endsWith("/" + ANY_DEPTH)) {
+				String parent = directory.substring(0, directory.length() - ANY_DEPTH.length() - 1);
+				return new DirectoryCandidate(candidate,
+						List.of(GlobPattern.compile(parent), GlobPattern.compile(directory)), false, ancestors);
+			}
+			if (directory.endsWith(ANY_DEPTH)) {
+				// The slash after this ** is optional, so the directory part is not fixed
+				return new DirectoryCandidate(candidate, List.of(), true, ancestors);
+			}
+			return new DirectoryCandidate(candidate, List.of(GlobPattern.compile(directory)), false, ancestors);
+		}
+
+		/**
+		 * Tests whether the pattern can match some file directly in a directory.
+		 * @param directory the normalized directory, or null for a path without one
+		 * @return false only if no file in the directory can match
+		 */
+		boolean mayMatchIn(String directory) {
+			if (this.anyDirectory) {
+				return true;
+			}
+			if (directory == null) {
+				return false;
+			}
+			if (matchesDirectory(directory)) {
+				return true;
+			}
+			if (this.ancestors) {
+				int slash = directory.lastIndexOf('/');
+				while (slash >= 0) {
+					if (matchesDirectory(directory.substring(0, slash))) {
+						return true;
+					}
+					slash = directory.lastIndexOf('/', slash - 1);
+				}
+			}
+			return false;
+		}
+
+		private boolean matchesDirectory(String directory) {
+			for (GlobPattern pattern : this.directories) {
+				if (directory.endsWith(pattern.literalSuffix()) && pattern.matchesTarget(directory)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Trie of literal suffixes keyed by characters from the end. Walking a target
+	 * backwards visits exactly the patterns whose suffix it ends with.
+	 */
+	private static final class SuffixTrie {
+
+		private final Map<Character, SuffixTrie> children = new HashMap<>();
+
+		private final List<Candidate> candidates = new ArrayList<>();
+
+		void add(String suffix, Candidate candidate) {
+			SuffixTrie node = this;
+			for (int i = suffix.length() - 1; i >= 0; i--) {
+				node = node.children.computeIfAbsent(suffix.charAt(i), (key) -> new SuffixTrie());
+			}
+			node.candidates.add(candidate);
+		}
+
+		void sort() {
+			this.candidates.sort(BEST_FIRST);
+			this.children.values().forEach(SuffixTrie::sort);
+		}
+
+		Candidate match(String target, Candidate best) {
+			SuffixTrie node = this;
+			for (int i = target.length() - 1; i >= 0 && node != null; i--) {
+				node = node.children.get(target.charAt(i));
+				if (node != null) {
+					best = node.matchHere(target, best);
+				}
+			}
+			return best;
+		}
+
+		private Candidate matchHere(String target, Candidate best) {
+			for (Candidate candidate : this.candidates) {
+				if (!better(candidate, best)) {
+					// Sorted best first, so no later candidate can win either
+					break;
+				}
+				if (candidate.glob().matchesTarget(target)) {
+					return candidate;
+				}
+			}
+			return best;
+		}
+
+	}
+
+	/**
+	 * Patterns without a literal suffix combined into one regular expression, one
+	 * capturing group per pattern in best-first order. The matcher tries the alternatives
+	 * in order, so the first group that participates in the match is the best match.
+	 */
+	private static final class Alternation {
+
+		private static final Alternation EMPTY = new Alternation(null, List.of());
+
+		private final Pattern pattern;
+
+		private final List<Candidate> candidates;
+
+		private Alternation(Pattern pattern, List<Candidate> candidates) {
+			this.pattern = pattern;
+			this.candidates = candidates;
+		}
+
+		static Alternation of(List<Candidate> candidates) {
+			if (candidates.isEmpty()) {
+				return EMPTY;
+			}
+			List<Candidate> sorted = new ArrayList<>(candidates);
+			sorted.sort(BEST_FIRST);
+			StringBuilder regex = new StringBuilder("^(?:");
+			for (int i = 0; i < sorted.size(); i++) {
+				regex.append((i > 0) ? "|(" : "(").append(sorted.get(i).glob().regex()).append(')');
+			}
+			return new Alternation(Pattern.compile(regex.append(")$").toString()), List.copyOf(sorted));
+		}
+
+		Candidate match(String target) {
+			if (this.pattern == null) {
+				return null;
+			}
+			Matcher matcher = this.pattern.matcher(target);
+			if (!matcher.matches()) {
+				return null;
+			}
+			for (int group = 1; group <= this.candidates.size(); group++) {
+				if (matcher.start(group) >= 0) {
+					return this.candidates.get(group - 1);
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
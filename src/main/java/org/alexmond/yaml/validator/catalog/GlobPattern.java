@@ -9,19 +9,30 @@ import java.util.regex.Pattern;
  * path segments). A pattern that contains no {@code /} is matched against the file's base
  * name only (e.g. {@code Chart.yaml}); otherwise it is matched against the full path,
  * with a leading {@code **}{@code /} allowing a match at any depth.
+ * <p>
+ * The regular expression is only compiled the first time a path is tested against the
+ * pattern, so patterns that are never tried cost nothing beyond their classification.
  */
 public final class GlobPattern {
 
-	private final Pattern pattern;
+	private final String glob;
 
 	private final boolean basenameOnly;
 
 	private final int specificity;
 
-	private GlobPattern(Pattern pattern, boolean basenameOnly, int specificity) {
-		this.pattern = pattern;
+	private final String literalSuffix;
+
+	private final boolean literal;
+
+	private volatile Pattern pattern;
+
+	private GlobPattern(String glob, boolean basenameOnly, int specificity, String literalSuffix, boolean literal) {
+		this.glob = glob;
 		this.basenameOnly = basenameOnly;
 		this.specificity = specificity;
+		this.literalSuffix = literalSuffix;
+		this.literal = literal;
 	}
 
 	/**
@@ -31,15 +42,37 @@ public final class GlobPattern {
 	 */
 	public static GlobPattern compile(String glob) {
 		boolean basenameOnly = glob.indexOf('/') < 0;
-		Pattern compiled = Pattern.compile("^" + globToRegex(glob) + "$");
 		int literalChars = 0;
+		int lastWildcard = -1;
 		for (int i = 0; i < glob.length(); i++) {
 			char c = glob.charAt(i);
 			if (c != '*' && c != '?') {
 				literalChars++;
 			}
+			else {
+				lastWildcard = i;
+			}
 		}
-		return new GlobPattern(compiled, basenameOnly, literalChars);
+		int suffixStart = lastWildcard + 1;
+		if (lastWildcard > 0 && glob.charAt(lastWildcard - 1) == '*' && glob.startsWith("/", suffixStart)) {
+			// The slash of "**/" is optional, so "**/a.yml" also matches a bare "a.yml"
+			suffixStart++;
+		}
+		return new GlobPattern(glob, basenameOnly, literalChars, glob.substring(suffixStart), lastWildcard < 0);
+	}
+
+	/**
+	 * Restores a pattern classified ahead of time, as stored in the compiled catalog
+	 * index, without classifying it again.
+	 * @param glob the glob pattern
+	 * @param basenameOnly whether the pattern applies to the base name only
+	 * @param specificity the number of literal characters
+	 * @param literalSuffix the literal text after the last wildcard
+	 * @param literal whether the pattern has no wildcards
+	 * @return the pattern
+	 */
+	static GlobPattern of(String glob, boolean basenameOnly, int specificity, String literalSuffix, boolean literal) {
+		return new GlobPattern(glob, basenameOnly, specificity, literalSuffix, literal);
 	}
 
 	/**
@@ -49,8 +82,7 @@ public final class GlobPattern {
 	 */
 	public boolean matches(String path) {
 		String normalized = path.replace('\\', '/');
-		String target = this.basenameOnly ? basename(normalized) : normalized;
-		return this.pattern.matcher(target).matches();
+		return matchesTarget(this.basenameOnly ? basename(normalized) : normalized);
 	}
 
 	/**
@@ -62,7 +94,69 @@ public final class GlobPattern {
 		return this.specificity;
 	}
 
-	private static String basename(String path) {
+	/**
+	 * Tests a path that is already normalized to {@code /} separators and, for a
+	 * {@link #isBasenameOnly() base-name pattern}, reduced to its base name.
+	 * @param target the normalized path or base name
+	 * @return true if the target matches
+	 */
+	boolean matchesTarget(String target) {
+		if (this.literal) {
+			return this.glob.equals(target);
+		}
+		Pattern current = this.pattern;
+		if (current == null) {
+			// Racing threads compile equal patterns, so either result may be kept
+			current = Pattern.compile("^" + regex() + "$");
+			this.pattern = current;
+		}
+		return current.matcher(target).matches();
+	}
+
+	/**
+	 * The glob this pattern was compiled from.
+	 * @return the glob
+	 */
+	String glob() {
+		return this.glob;
+	}
+
+	/**
+	 * Whether the pattern is matched against the base name only (it contains no
+	 * {@code /}).
+	 * @return true for base-name patterns
+	 */
+	boolean isBasenameOnly() {
+		return this.basenameOnly;
+	}
+
+	/**
+	 * The literal text after the last wildcard, which every matching target ends with.
+	 * @return the literal suffix, empty when the pattern ends with a wildcard, or the
+	 * whole pattern when it has no wildcards
+	 */
+	String literalSuffix() {
+		return this.literalSuffix;
+	}
+
+	/**
+	 * Whether the pattern has no wildcards, so only the identical target matches.
+	 * @return true for a literal pattern
+	 */
+	boolean isLiteral() {
+		return this.literal;
+	}
+
+	/**
+	 * The unanchored regular expression the glob translates to, which has no capturing
+	 * groups.
+	 * @return the regular expression
+	 */
+	String regex() {
+		return globToRegex(this.glob);
+	}
+
+	static String basename(String path) {
 		int slash = path.lastIndexOf('/');
 		return (slash >= 0) ? path.substring(slash + 1) : path;
 	}
@@ -1,24 +1,47 @@
 package org.alexmond.yaml.validator.catalog;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.YamlValidationException;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.alexmond.yaml.validator.schema.SchemaFetcher;
+import org.alexmond.yaml.validator.schema.SchemaLoader;
+import org.alexmond.yaml.validator.schema.SchemaSnapshot;
+import tools.jackson.core.JacksonException;
 import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLMapper;
 
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 /**
  * Loads the JSON Schema Store catalog used for path-based schema autodetection. Prefers a
- * live fetch from the configured catalog URL and falls back to the snapshot bundled in
- * the jar, so detection keeps working offline. The result is cached for the process
- * lifetime.
+ * live fetch from the configured catalog URL, served from the on-disk schema cache while
+ * it is fresh, and falls back to the snapshot bundled in the jar, so detection keeps
+ * working offline. The result is cached for the process lifetime.
+ * <p>
+ * Only the {@code url} and {@code fileMatch} of each entry are kept: the live catalog is
+ * read with a streaming parser that skips everything else, and its index is kept in the
+ * {@link SchemaSnapshot} so the next run need not read it again. The bundled snapshot is
+ * loaded from the index the build compiles ({@link CatalogIndexFile}), falling back to
+ * its JSON when the index is missing.
+ * <p>
+ * Loading can be started in the background with {@link #preload()}. When the catalog is
+ * not freshly cached, its host is first tried with the short
+ * {@code catalogConnectTimeout}; if that fails the stale cached copy or the bundled
+ * snapshot is used at once instead of waiting for {@code httpTimeout}.
+ * <p>
+ * The project's own {@code schemaMappings} file, in the same catalog format, is loaded
+ * separately from the local file system and is tried before the catalog.
  */
 @Slf4j
 @Component
@@ -27,27 +50,125 @@ public class SchemaCatalogLoader {
 
 	private static final String BUNDLED_CATALOG = "/schema-catalog.json";
 
-	private static final int HTTP_SUCCESS_STATUS = 200;
+	private static final String BUNDLED_INDEX = "/schema-catalog.idx";
 
 	private final YamlSchemaValidatorConfig config;
 
+	private final SchemaFetcher schemaFetcher;
+
+	private final SchemaSnapshot snapshot;
+
+	private final ValidationExecutor validationExecutor;
+
 	private final JsonMapper jsonMapper = JsonMapper.builder().build();
 
-	private SchemaCatalog cached;
+	private final YAMLMapper yamlMapper = YAMLMapper.builder().build();
+
+	private final Object lock = new Object();
+
+	private volatile CompletableFuture<CatalogIndexFile.Compiled> loading;
+
+	private volatile LocalMappings localMappings;
+
+	/**
+	 * Starts loading the catalog in the background, if it is not loaded or loading yet,
+	 * so the download overlaps with reading and parsing the inputs. A later
+	 * {@link #load()} waits for this load instead of starting another.
+	 */
+	public void preload() {
+		loading(true);
+	}
 
 	/**
-	 * Returns the catalog, loading it on first use.
+	 * Returns the catalog, loading it on first use. Entries of the {@code schemaMappings}
+	 * file come first, unless it cannot be read.
 	 * @return the schema catalog (never null; empty if nothing could be loaded)
 	 */
 	public SchemaCatalog load() {
-		if (this.cached == null) {
-			SchemaCatalog catalog = fetchLive();
-			if (catalog == null || catalog.getSchemas() == null || catalog.getSchemas().isEmpty()) {
-				catalog = loadBundled();
+		SchemaCatalog catalog = compiled().catalog();
+		List<CatalogEntry> mappings = localMappings().compiled().catalog().getSchemas();
+		if (mappings == null || mappings.isEmpty()) {
+			return catalog;
+		}
+		List<CatalogEntry> merged = new ArrayList<>(mappings);
+		if (catalog.getSchemas() != null) {
+			merged.addAll(catalog.getSchemas());
+		}
+		SchemaCatalog result = new SchemaCatalog();
+		result.setSchemas(merged);
+		return result;
+	}
+
+	/**
+	 * Returns the file patterns of the {@code schemaMappings} file, reading it on first
+	 * use. Relative schema paths in it are resolved against the file's directory.
+	 * @return every file pattern with the schema it selects, in file order; empty when no
+	 * mapping file is configured
+	 * @throws YamlValidationException if the mapping file cannot be read
+	 */
+	List<Map.Entry<GlobPattern, String>> localPatterns() {
+		LocalMappings current = localMappings();
+		if (current.error() != null) {
+			throw new YamlValidationException(current.error(), null, this.config.getSchemaMappings());
+		}
+		return current.compiled().patterns();
+	}
+
+	/**
+	 * Returns the file patterns of the catalog, loading it on first use.
+	 * @return every file pattern with the schema URL it selects, in catalog order
+	 */
+	List<Map.Entry<GlobPattern, String>> patterns() {
+		return compiled().patterns();
+	}
+
+	private CatalogIndexFile.Compiled compiled() {
+		return loading(false).join();
+	}
+
+	private CompletableFuture<CatalogIndexFile.Compiled> loading(boolean background) {
+		CompletableFuture<CatalogIndexFile.Compiled> current = this.loading;
+		if (current != null) {
+			return current;
+		}
+		boolean loadHere = false;
+		synchronized (this.lock) {
+			current = this.loading;
+			if (current == null) {
+				current = background ? this.validationExecutor.supplyAsync(this::loadCompiled)
+						: new CompletableFuture<>();
+				loadHere = !background;
+				this.loading = current;
+			}
+		}
+		if (loadHere) {
+			try {
+				current.complete(loadCompiled());
 			}
-			this.cached = (catalog != null) ? catalog : new SchemaCatalog();
+			catch (RuntimeException ex) {
+				// Release threads waiting on this load rather than leave them blocked
+				current.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+		return current;
+	}
+
+	private CatalogIndexFile.Compiled loadCompiled() {
+		SchemaCatalog catalog = fetchLive();
+		CatalogIndexFile.Compiled compiled;
+		if (catalog != null && catalog.getSchemas() != null && !catalog.getSchemas().isEmpty()) {
+			compiled = CatalogIndexFile.compile(catalog);
 		}
-		return this.cached;
+		else {
+			compiled = loadBundledIndex();
+		}
+		if (compiled == null) {
+			catalog = loadBundled();
+			compiled = CatalogIndexFile.compile((catalog != null) ? catalog : new SchemaCatalog());
+		}
+		log.debug("Loaded {} catalog file-match patterns", compiled.patterns().size());
+		return compiled;
 	}
 
 	private SchemaCatalog fetchLive() {
@@ -56,40 +177,116 @@ public class SchemaCatalogLoader {
 			return null;
 		}
 		try {
-			HttpClient httpClient = HttpClient.newBuilder()
-				.followRedirects(HttpClient.Redirect.NORMAL)
-				.connectTimeout(this.config.getHttpTimeout())
-				.build();
-			HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-			HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-			if (response.statusCode() == HTTP_SUCCESS_STATUS) {
-				log.debug("Loaded live schema catalog from {}", url);
-				return this.jsonMapper.readValue(response.body(), SchemaCatalog.class);
+			byte[] content;
+			if (this.schemaFetcher.isCached(url)
+					|| this.schemaFetcher.isReachable(url, this.config.getCatalogConnectTimeout())) {
+				content = this.schemaFetcher.fetch(url);
 			}
-			log.debug("Catalog fetch returned status {} for {}; using bundled snapshot", response.statusCode(), url);
-		}
-		catch (InterruptedException ex) {
-			Thread.currentThread().interrupt();
-			log.debug("Live catalog fetch interrupted; using bundled snapshot");
+			else {
+				content = this.schemaFetcher.cachedCopy(url);
+				if (content == null) {
+					log.debug("Catalog host of {} is unreachable; using bundled snapshot", url);
+					return null;
+				}
+				log.debug("Catalog host of {} is unreachable; using the cached catalog", url);
+			}
+			SchemaCatalog catalog = this.snapshot.catalog(content, this::parse);
+			log.debug("Loaded live schema catalog from {}", url);
+			return catalog;
 		}
-		catch (RuntimeException | java.io.IOException ex) {
+		catch (RuntimeException ex) {
 			log.debug("Live catalog fetch from {} failed ({}); using bundled snapshot", url, ex.getMessage());
 		}
 		return null;
 	}
 
+	private LocalMappings localMappings() {
+		LocalMappings current = this.localMappings;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.localMappings;
+				if (current == null) {
+					current = loadLocalMappings();
+					this.localMappings = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private LocalMappings loadLocalMappings() {
+		String path = this.config.getSchemaMappings();
+		if (!StringUtils.hasText(path)) {
+			return new LocalMappings(CatalogIndexFile.compile(new SchemaCatalog()), null);
+		}
+		File file = new File(path);
+		try {
+			boolean yaml = path.endsWith(".yaml") || path.endsWith(".yml");
+			SchemaCatalog catalog = (yaml ? this.yamlMapper : this.jsonMapper).readValue(file, SchemaCatalog.class);
+			if (catalog.getSchemas() != null) {
+				for (CatalogEntry entry : catalog.getSchemas()) {
+					if (entry.getUrl() != null) {
+						entry.setUrl(resolveSchemaPath(file, entry.getUrl()));
+					}
+				}
+			}
+			CatalogIndexFile.Compiled compiled = CatalogIndexFile.compile(catalog);
+			log.debug("Loaded {} schema mapping patterns from {}", compiled.patterns().size(), path);
+			return new LocalMappings(compiled, null);
+		}
+		catch (JacksonException ex) {
+			String msg = "Cannot read schema mappings " + path + ": " + ex.getMessage();
+			log.error(msg);
+			return new LocalMappings(CatalogIndexFile.compile(new SchemaCatalog()), msg);
+		}
+	}
+
+	private static String resolveSchemaPath(File mappings, String schemaPath) {
+		if (SchemaLoader.isHttpUrl(schemaPath) || new File(schemaPath).isAbsolute()) {
+			return schemaPath;
+		}
+		return new File(mappings.getParentFile(), schemaPath).getPath();
+	}
+
+	private CatalogIndexFile.Compiled loadBundledIndex() {
+		try (InputStream is = getClass().getResourceAsStream(BUNDLED_INDEX)) {
+			if (is == null) {
+				log.debug("Compiled catalog index {} not found on classpath, reading the JSON", BUNDLED_INDEX);
+				return null;
+			}
+			return CatalogIndexFile.read(is);
+		}
+		catch (IOException ex) {
+			log.warn("Failed to load compiled catalog index: {}", ex.getMessage());
+			return null;
+		}
+	}
+
 	private SchemaCatalog loadBundled() {
 		try (InputStream is = getClass().getResourceAsStream(BUNDLED_CATALOG)) {
 			if (is == null) {
 				log.warn("Bundled schema catalog {} not found on classpath", BUNDLED_CATALOG);
 				return null;
 			}
-			return this.jsonMapper.readValue(is.readAllBytes(), SchemaCatalog.class);
+			return this.snapshot.catalog(is.readAllBytes(), this::parse);
 		}
-		catch (RuntimeException | java.io.IOException ex) {
+		catch (RuntimeException | IOException ex) {
 			log.warn("Failed to load bundled schema catalog: {}", ex.getMessage());
 			return null;
 		}
 	}
 
+	private SchemaCatalog parse(byte[] content) {
+		return CatalogIndexFile.parseCatalog(this.jsonMapper, content);
+	}
+
+	/**
+	 * The contents of the {@code schemaMappings} file.
+	 *
+	 * @param compiled the mapping entries and their patterns, empty if unreadable
+	 * @param error why the file could not be read, or null
+	 */
+	private record LocalMappings(CatalogIndexFile.Compiled compiled, String error) {
+	}
+
 }
@@ -1,48 +1,62 @@
 package org.alexmond.yaml.validator.catalog;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.YamlValidationException;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 /**
  * Resolves the JSON Schema for a file from its path, using the JSON Schema Store catalog
  * (the same mechanism IDEs use). Only consulted when no schema was given on the command
  * line and none is declared in the file. When several catalog patterns match, the most
- * specific one (most literal characters) wins.
+ * specific one (most literal characters) wins. The patterns are compiled once into a
+ * {@link GlobIndex}, which only tries the patterns whose literal suffix the path ends
+ * with and remembers its answers per base name and per directory, so files sharing a
+ * directory or a name cost a hash lookup after the first. The
+ * {@link #statistics() statistics} show how often that happened.
+ * <p>
+ * Patterns from the project's {@code schemaMappings} file get their own index, tried
+ * before the catalog, so a mapped file never waits for the catalog to load. Between the
+ * two, the {@link ContentDetector} recognizes documents by their top-level keys, which
+ * also needs no catalog.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class SchemaDetector {
+public class SchemaDetector implements DisposableBean {
 
 	private final YamlSchemaValidatorConfig config;
 
 	private final SchemaCatalogLoader catalogLoader;
 
-	private List<CompiledEntry> compiledEntries;
+	private final ContentDetector contentDetector;
+
+	private final Object lock = new Object();
+
+	private volatile GlobIndex mappingIndex;
+
+	private volatile GlobIndex globIndex;
 
 	/**
-	 * Detects the schema URL for a file path.
+	 * Detects the schema URL for a file path. The project's {@code schemaMappings} are
+	 * tried first and a match there wins over any catalog pattern.
 	 * @param path the path of the file being validated
-	 * @return the detected schema URL, or null if autodetection is disabled or no catalog
-	 * pattern matches
+	 * @return the detected schema URL or path, or null if no mapping matches and either
+	 * autodetection is disabled or no catalog pattern matches
+	 * @throws YamlValidationException if the mapping file cannot be read
 	 */
 	public String detect(String path) {
-		if (!this.config.isAutoDetect() || path == null) {
+		if (path == null) {
 			return null;
 		}
-		String bestUrl = null;
-		int bestSpecificity = -1;
-		for (CompiledEntry entry : compiled()) {
-			if (entry.glob().specificity() > bestSpecificity && entry.glob().matches(path)) {
-				bestSpecificity = entry.glob().specificity();
-				bestUrl = entry.url();
-			}
+		String bestUrl = mappings().match(path);
+		if (bestUrl == null && this.config.isAutoDetect()) {
+			bestUrl = compiled().match(path);
 		}
 		if (bestUrl != null) {
 			log.debug("Autodetected schema {} for {}", bestUrl, path);
@@ -50,27 +64,122 @@ public class SchemaDetector {
 		return bestUrl;
 	}
 
-	private List<CompiledEntry> compiled() {
-		if (this.compiledEntries == null) {
-			List<CompiledEntry> entries = new ArrayList<>();
-			SchemaCatalog catalog = this.catalogLoader.load();
-			if (catalog.getSchemas() != null) {
-				for (CatalogEntry catalogEntry : catalog.getSchemas()) {
-					if (catalogEntry.getUrl() == null || catalogEntry.getFileMatch() == null) {
-						continue;
-					}
-					for (String glob : catalogEntry.getFileMatch()) {
-						entries.add(new CompiledEntry(GlobPattern.compile(glob), catalogEntry.getUrl()));
-					}
+	/**
+	 * Detects the schema URL for a document: the project's {@code schemaMappings} first,
+	 * then the document's top-level key values, then the catalog.
+	 * @param path the path of the file being validated
+	 * @param fields the scalar values of the document's first top-level keys, read while
+	 * it was parsed
+	 * @return the detected schema URL or path, or null if nothing matches
+	 * @throws YamlValidationException if the mapping file cannot be read
+	 */
+	public String detect(String path, Map<String, String> fields) {
+		String url = detectLocally(path, fields);
+		return (url != null) ? url : detect(path);
+	}
+
+	/**
+	 * Detects the schema URL for a document without the catalog: from the project's
+	 * {@code schemaMappings}, then from the document's top-level key values.
+	 * @param path the path of the file being validated
+	 * @param fields the scalar values of the document's first top-level keys
+	 * @return the detected schema URL or path, or null if neither matches
+	 * @throws YamlValidationException if the mapping file cannot be read
+	 */
+	public String detectLocally(String path, Map<String, String> fields) {
+		String url = (path != null) ? mappings().match(path) : null;
+		if (url == null) {
+			url = this.contentDetector.detect(fields);
+		}
+		return url;
+	}
+
+	/**
+	 * The number of top-level keys at the start of each document to collect for
+	 * {@link #detectLocally(String, Map)}.
+	 * @return the key limit, or 0 if content detection is off
+	 */
+	public int contentKeys() {
+		return this.contentDetector.isEnabled() ? this.contentDetector.keyLimit() : 0;
+	}
+
+	/**
+	 * Starts loading the catalog in the background when autodetection is enabled, so a
+	 * later {@link #detect(String)} finds it loaded or already on its way.
+	 */
+	public void preload() {
+		if (this.config.isAutoDetect()) {
+			this.catalogLoader.preload();
+		}
+	}
+
+	/**
+	 * Counts the catalog lookups so far and those answered from memoized results alone.
+	 * @return the detection statistics, all zero before the first detection
+	 */
+	public Statistics statistics() {
+		GlobIndex current = this.globIndex;
+		return (current != null) ? current.statistics() : new Statistics(0, 0);
+	}
+
+	@Override
+	public void destroy() {
+		Statistics statistics = statistics();
+		if (statistics.lookups() > 0) {
+			log.debug("Schema detection: {} lookups, {} answered from memoized results ({}%)",
+					statistics.lookups(), statistics.hits(), Math.round(statistics.hitRate() * 100));
+		}
+	}
+
+	private GlobIndex mappings() {
+		GlobIndex current = this.mappingIndex;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.mappingIndex;
+				if (current == null) {
+					current = GlobIndex.of(this.catalogLoader.localPatterns());
+					this.mappingIndex = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private GlobIndex compiled() {
+		GlobIndex current = this.globIndex;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.globIndex;
+				if (current == null) {
+					current = compile();
+					this.globIndex = current;
 				}
 			}
-			log.debug("Compiled {} catalog file-match patterns for autodetection", entries.size());
-			this.compiledEntries = entries;
 		}
-		return this.compiledEntries;
+		return current;
+	}
+
+	private GlobIndex compile() {
+		return GlobIndex.of(this.catalogLoader.patterns());
 	}
 
-	private record CompiledEntry(GlobPattern glob, String url) {
+	/**
+	 * Detection statistics.
+	 *
+	 * @param lookups the number of paths detected
+	 * @param hits the lookups whose base name and directory were both seen before, so no
+	 * pattern had to be classified again
+	 */
+	public record Statistics(long lookups, long hits) {
+
+		/**
+		 * The share of lookups answered from memoized results.
+		 * @return the hit rate between 0 and 1, or 0 before the first lookup
+		 */
+		public double hitRate() {
+			return (this.lookups > 0) ? (double) this.hits / this.lookups : 0;
+		}
+
 	}
 
 }
@@ -0,0 +1,21 @@
+package org.alexmond.yaml.validator.config;
+
+/**
+ * Format of the documents being validated, selecting the parser used to read them.
+ */
+public enum InputFormat {
+
+	/**
+	 * Detect JSON or YAML per file from its leading bytes
+	 */
+	AUTO,
+	/**
+	 * Always parse as JSON
+	 */
+	JSON,
+	/**
+	 * Always parse as (possibly multi-document) YAML
+	 */
+	YAML
+
+}
@@ -3,6 +3,7 @@ package org.alexmond.yaml.validator.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 import java.util.List;
@@ -94,6 +95,24 @@ public class YamlSchemaValidatorConfig {
 	 */
 	private boolean autoDetect = true;
 
+	/**
+	 * Flag to detect schemas from document content when autodetection is on: the values
+	 * of discriminating top-level keys such as {@code apiVersion} and {@code kind},
+	 * {@code openapi} or {@code swagger} select a schema from a bundled rule table. Tried
+	 * after {@code schemaMappings} and before the Schema Store catalog. Off by default, as
+	 * it gives files that used to report no schema one to download and validate against.
+	 *
+	 * @value false
+	 */
+	private boolean contentDetect;
+
+	/**
+	 * Number of top-level keys at the start of each document read for content detection.
+	 *
+	 * @value 16
+	 */
+	private int contentDetectKeys = 16;
+
 	/**
 	 * URL of the JSON Schema Store catalog used for autodetection. A snapshot is bundled
 	 * in the jar and used as a fallback when this URL cannot be fetched. Set to empty to
@@ -101,6 +120,25 @@ public class YamlSchemaValidatorConfig {
 	 */
 	private String catalogUrl = "https://www.schemastore.org/api/json/catalog.json";
 
+	/**
+	 * Project schema mapping file in the catalog format (a {@code schemas} list of
+	 * entries with {@code fileMatch} globs and a {@code url}), as JSON or YAML. Its
+	 * entries take precedence over the Schema Store catalog and apply even when
+	 * {@code autoDetect} is off. A {@code url} may be a local path, resolved against the
+	 * mapping file's directory.
+	 */
+	private String schemaMappings;
+
+	/**
+	 * How long to wait for a connection to the catalog host before treating the network
+	 * as unavailable and using the cached or bundled catalog instead. Only checked when
+	 * the catalog is not freshly cached, so an offline run does not wait for
+	 * {@code httpTimeout}.
+	 *
+	 * @value 1 second
+	 */
+	private Duration catalogConnectTimeout = Duration.ofSeconds(1);
+
 	/**
 	 * Flag controlling the shape of the {@code LLM} report. When true, emits compact
 	 * compiler-style diagnostic lines; when false, emits structured JSON. Ignored for
@@ -110,4 +148,199 @@ public class YamlSchemaValidatorConfig {
 	 */
 	private boolean compact;
 
+	/**
+	 * Number of files, and of documents within a multi-document file, validated
+	 * concurrently: a positive integer, or {@code auto} for one worker per available
+	 * processor. Reports keep the input file and document order regardless.
+	 *
+	 * @value 1
+	 */
+	private String parallelism = "1";
+
+	/**
+	 * Number of parsed documents of one multi-document file held at once while they are
+	 * validated concurrently, bounding the memory a large stream such as a rendered Helm
+	 * chart takes. Documents are validated concurrently only with a {@code parallelism}
+	 * above 1, and 1 validates them one at a time. Results keep the document order
+	 * regardless.
+	 *
+	 * @value 16
+	 */
+	private int maxDocumentsInFlight = 16;
+
+	/**
+	 * Format of the files being validated. {@code auto} picks JSON or YAML per file from
+	 * its leading bytes; {@code json} or {@code yaml} forces a single parser.
+	 *
+	 * @value AUTO
+	 */
+	private InputFormat inputFormat = InputFormat.AUTO;
+
+	/**
+	 * Flag to print each document's result as soon as it is validated instead of one
+	 * report at the end. Keeps memory bounded by the largest document for huge
+	 * multi-document files and unbounded stdin. Requires the {@code TEXT} report on
+	 * stdout; files are then validated in order.
+	 *
+	 * @value false
+	 */
+	private boolean stream;
+
+	/**
+	 * Flag to validate a file holding one top-level array element by element from the
+	 * token stream, without building the whole tree, when its schema (given or detected
+	 * from the path) is {@code type: array} with an {@code items} schema and no keyword
+	 * other than {@code minItems}, {@code maxItems} and {@code uniqueItems} constraining
+	 * the array as a whole. Errors keep the element index in their instance location.
+	 *
+	 * @value false
+	 */
+	private boolean streamArrays;
+
+	/**
+	 * Flag to build only the parts of each document the given schema can look at: values
+	 * under properties the schema never constrains are skipped while parsing instead of
+	 * being built into the document tree. Results are the same as with a full parse. Only
+	 * used with the {@code schema} setting, since other schemas are known only after
+	 * parsing.
+	 *
+	 * @value false
+	 */
+	private boolean projection;
+
+	/**
+	 * Size from which input files are memory-mapped and parsed from the mapped pages
+	 * instead of being read onto the heap; smaller files are read into reused buffers.
+	 *
+	 * @value 4MB
+	 */
+	private DataSize mapThreshold = DataSize.ofMegabytes(4);
+
+	/**
+	 * Largest size of a single input document; a larger document fails to parse and is
+	 * reported as an error of its file. Applies to each document of a YAML stream, to the
+	 * whole of a JSON input and, with {@code streamArrays}, to each element of a streamed
+	 * top-level array instead of the whole array. For YAML this is the code point limit
+	 * of the YAML parser and replaces its 3MB default.
+	 *
+	 * @value 256MB
+	 */
+	private DataSize maxDocumentSize = DataSize.ofMegabytes(256);
+
+	/**
+	 * Deepest nesting of objects and arrays allowed in an input document.
+	 *
+	 * @value 500
+	 */
+	private int maxNestingDepth = 500;
+
+	/**
+	 * Largest number of aliases to anchored YAML mappings and sequences allowed in an
+	 * input document, guarding against alias expansion bombs. Aliases to scalars are not
+	 * counted.
+	 *
+	 * @value 50
+	 */
+	private int maxAliases = 50;
+
+	/**
+	 * Longest string value, in characters, allowed in an input document.
+	 *
+	 * @value 20000000
+	 */
+	private int maxStringLength = 20_000_000;
+
+	/**
+	 * Largest number of documents allowed in one input stream; the documents after it are
+	 * not read and the file reports an error. {@code 0} leaves the count unlimited, so an
+	 * endless stream such as a watched stdin can be validated with {@code stream}.
+	 *
+	 * @value 0
+	 */
+	private int maxDocuments;
+
+	/**
+	 * Flag to compile every schema the inputs refer to (the {@code schema} setting,
+	 * {@code $schema} headers and auto-detected catalog matches) in parallel before any
+	 * file is validated, so schema fetch and compile time is not paid inside the first
+	 * files that use each schema.
+	 *
+	 * @value false
+	 */
+	private boolean eagerSchemas;
+
+	/**
+	 * Flag to scan the inputs for the schemas they refer to before validating and start
+	 * downloading remote schemas that are not cached, concurrently and in the background.
+	 * Files whose schemas are local or cached are validated first; the report keeps the
+	 * input order. The scan reads every input once more, so it pays off only when many
+	 * files share uncached remote schemas.
+	 *
+	 * @value false
+	 */
+	private boolean prefetch;
+
+	/**
+	 * Directory of the persistent cache for downloaded schemas and the schema catalog,
+	 * shared by concurrent validator processes. Defaults to
+	 * {@code $XDG_CACHE_HOME/yj-schema-validator}, or
+	 * {@code ~/.cache/yj-schema-validator} when {@code XDG_CACHE_HOME} is not set.
+	 */
+	private String cacheDir;
+
+	/**
+	 * How long a cached download is used without asking the server. Older entries are
+	 * revalidated with a conditional request and reused when unchanged.
+	 *
+	 * @value 24 hours
+	 */
+	private Duration cacheTtl = Duration.ofHours(24);
+
+	/**
+	 * Flag to never use the network. Remote schemas and the catalog are served only from
+	 * the cache, regardless of age; anything not cached fails.
+	 *
+	 * @value false
+	 */
+	private boolean offline;
+
+	/**
+	 * How long a failed schema or catalog download (timeout, error status, TLS error) is
+	 * remembered. Until it expires, every file referring to the URL fails immediately
+	 * with the recorded error instead of fetching again. Unset keeps failures for the
+	 * rest of the run; set it for long-running use.
+	 */
+	private Duration fetchFailureTtl;
+
+	/**
+	 * Maximum number of schema or catalog downloads running against the same host at
+	 * once.
+	 *
+	 * @value 4
+	 */
+	private int httpMaxConnectionsPerHost = 4;
+
+	/**
+	 * Offline schema bundle to serve every remote schema, {@code $ref} and the catalog
+	 * from: a zip or directory written by the {@code bundle} command, or a directory of
+	 * schemas indexed by their {@code $id}. The network is never used; URIs missing from
+	 * the bundle fail.
+	 */
+	private String schemaBundle;
+
+	/**
+	 * URI prefix rewrites for a directory {@code schemaBundle}, each
+	 * {@code <uri-prefix>=<path-prefix>} with the path relative to the bundle directory,
+	 * e.g. {@code https://example.com/schemas/=example/}.
+	 */
+	private List<String> schemaBundleRewrites;
+
+	/**
+	 * Flag to keep a warm-start snapshot of parsed schemas and the catalog index in the
+	 * cache directory, so later runs skip parsing sources that have not changed.
+	 *
+	 * @value true
+	 */
+	private boolean warmStart = true;
+
 }
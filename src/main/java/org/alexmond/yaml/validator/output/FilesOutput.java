@@ -63,49 +63,49 @@ public class FilesOutput {
 		AnsiOutput.setEnabled(color ? AnsiOutput.Enabled.ALWAYS : AnsiOutput.Enabled.NEVER);
 		try {
 			StringBuilder result = new StringBuilder();
-			result.append("Validation Result: ");
-			if (valid) {
-				result.append(AnsiOutput.toString(AnsiColor.GREEN, "ok", AnsiColor.DEFAULT));
-			}
-			else {
-				result.append(AnsiOutput.toString(AnsiColor.RED, "invalid", AnsiColor.DEFAULT));
-			}
-			result.append('\n');
-
-			files.forEach((filename, output) -> {
-				result.append(filename).append(": ");
-				if (output.isValid()) {
-					result.append(AnsiOutput.toString(AnsiColor.GREEN, "ok", AnsiColor.DEFAULT));
-				}
-				else {
-					result.append(AnsiOutput.toString(AnsiColor.RED, "invalid", AnsiColor.DEFAULT));
-				}
-				result.append('\n');
-
-				if (!output.isValid() && output.getErrors() != null) {
-					output.getErrors()
-						.forEach((label, message) -> result.append(" " + label + ": ").append(message).append('\n'));
-				}
+			appendSummary(result, valid);
+			files.forEach((filename, output) -> appendEntry(result, filename, output));
+			return result.toString();
+		}
+		finally {
+			AnsiOutput.setEnabled(previous);
+		}
+	}
 
-				if (!output.isValid() && output.getDetails() != null) {
-					output.getDetails().forEach((detail) -> {
-						result.append(" Details:\n Path: ")
-							.append(detail.getInstanceLocation())
-							.append("\n Schema: ")
-							.append(detail.getSchemaLocation())
-							.append('\n');
-						if (detail.getErrors() != null) {
-							detail.getErrors()
-								.forEach((label, message) -> result.append(' ')
-									.append(label)
-									.append(": ")
-									.append(message)
-									.append('\n'));
-						}
-					});
-				}
-			});
+	/**
+	 * Renders the overall verdict line of the text report on its own, for output that
+	 * streams the per-file entries first.
+	 * @param color true to enable ANSI color output, false for plain text
+	 * @return the "Validation Result" line
+	 */
+	public String toColoredSummary(boolean color) {
+		AnsiOutput.Enabled previous = AnsiOutput.getEnabled();
+		AnsiOutput.setEnabled(color ? AnsiOutput.Enabled.ALWAYS : AnsiOutput.Enabled.NEVER);
+		try {
+			StringBuilder result = new StringBuilder();
+			appendSummary(result, valid);
+			return result.toString();
+		}
+		finally {
+			AnsiOutput.setEnabled(previous);
+		}
+	}
 
+	/**
+	 * Renders a single file entry exactly as it appears in
+	 * {@link #toColoredString(boolean)}, so results can be printed as soon as each
+	 * document is validated.
+	 * @param filename the file (or document) name
+	 * @param output the validation result
+	 * @param color true to enable ANSI color output, false for plain text
+	 * @return the formatted entry, ending with a newline
+	 */
+	public static String toColoredString(String filename, OutputUnit output, boolean color) {
+		AnsiOutput.Enabled previous = AnsiOutput.getEnabled();
+		AnsiOutput.setEnabled(color ? AnsiOutput.Enabled.ALWAYS : AnsiOutput.Enabled.NEVER);
+		try {
+			StringBuilder result = new StringBuilder();
+			appendEntry(result, filename, output);
 			return result.toString();
 		}
 		finally {
@@ -113,6 +113,51 @@ public class FilesOutput {
 		}
 	}
 
+	private static void appendSummary(StringBuilder result, boolean valid) {
+		result.append("Validation Result: ");
+		if (valid) {
+			result.append(AnsiOutput.toString(AnsiColor.GREEN, "ok", AnsiColor.DEFAULT));
+		}
+		else {
+			result.append(AnsiOutput.toString(AnsiColor.RED, "invalid", AnsiColor.DEFAULT));
+		}
+		result.append('\n');
+	}
+
+	private static void appendEntry(StringBuilder result, String filename, OutputUnit output) {
+		result.append(filename).append(": ");
+		if (output.isValid()) {
+			result.append(AnsiOutput.toString(AnsiColor.GREEN, "ok", AnsiColor.DEFAULT));
+		}
+		else {
+			result.append(AnsiOutput.toString(AnsiColor.RED, "invalid", AnsiColor.DEFAULT));
+		}
+		result.append('\n');
+
+		if (!output.isValid() && output.getErrors() != null) {
+			output.getErrors()
+				.forEach((label, message) -> result.append(" " + label + ": ").append(message).append('\n'));
+		}
+
+		if (!output.isValid() && output.getDetails() != null) {
+			output.getDetails().forEach((detail) -> {
+				result.append(" Details:\n Path: ")
+					.append(detail.getInstanceLocation())
+					.append("\n Schema: ")
+					.append(detail.getSchemaLocation())
+					.append('\n');
+				if (detail.getErrors() != null) {
+					detail.getErrors()
+						.forEach((label, message) -> result.append(' ')
+							.append(label)
+							.append(": ")
+							.append(message)
+							.append('\n'));
+				}
+			});
+		}
+	}
+
 	/**
 	 * Converts the validation results to a JSON string representation.
 	 * @return JSON string of the validation results
@@ -0,0 +1,91 @@
+package org.alexmond.yaml.validator.schema;
+
+import com.networknt.schema.Schema;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A schema whose root is {@code type: array} with an {@code items} schema and nothing
+ * else that depends on the array as a whole except {@code minItems}, {@code maxItems} and
+ * {@code uniqueItems}. Such a schema can validate a huge array element by element: the
+ * element schema is the root schema without those three keywords, and the three keywords
+ * are checked while the elements go by. The element schema is compiled at its own
+ * location below the root schema's, so the shared schema registry never mistakes one for
+ * the other; {@link #rootLocation(String)} maps the locations it reports back to the root
+ * schema.
+ *
+ * @param elementSchema the root schema without {@code minItems}, {@code maxItems} and
+ * {@code uniqueItems}, validating a one-element array
+ * @param schemaLocation the location of the root schema, ending in {@code #}
+ * @param minItems the minimum number of elements, or null
+ * @param maxItems the maximum number of elements, or null
+ * @param uniqueItems whether the elements must be distinct
+ */
+public record ArraySchema(Schema elementSchema, String schemaLocation, Integer minItems, Integer maxItems,
+		boolean uniqueItems) {
+
+	static final Set<String> STREAMED_KEYWORDS = Set.of("minItems", "maxItems", "uniqueItems");
+
+	/**
+	 * The JSON pointer, below the root schema's location, at which the element schema is
+	 * compiled; no keyword uses it, so nothing else resolves to that location.
+	 */
+	static final String ELEMENT_POINTER = "/$streamedElement";
+
+	private static final Set<String> ROOT_KEYWORDS = Set.of("$schema", "$id", "id", "$comment", "title",
+			"description", "default", "examples", "$defs", "definitions", "type", "items", "minItems", "maxItems",
+			"uniqueItems");
+
+	/**
+	 * Tests whether a root schema can be validated element by element.
+	 * @param schemaNode the root schema
+	 * @return true for an object schema of type {@code array} with an object or boolean
+	 * {@code items} and no other keyword that constrains the array as a whole
+	 */
+	static boolean isStreamable(JsonNode schemaNode) {
+		if (schemaNode == null || !schemaNode.isObject() || !"array".equals(schemaNode.path("type").textValue())) {
+			return false;
+		}
+		JsonNode items = schemaNode.get("items");
+		if (items == null || !(items.isObject() || items.isBoolean())) {
+			return false;
+		}
+		for (Map.Entry<String, JsonNode> property : schemaNode.properties()) {
+			if (!ROOT_KEYWORDS.contains(property.getKey())) {
+				return false;
+			}
+		}
+		return (!schemaNode.has("minItems") || schemaNode.get("minItems").canConvertToInt())
+				&& (!schemaNode.has("maxItems") || schemaNode.get("maxItems").canConvertToInt());
+	}
+
+	/**
+	 * Maps a schema location reported by the element schema to the same place in the root
+	 * schema. Other locations, such as {@code $ref} targets in other documents, are
+	 * returned unchanged.
+	 * @param location a schema location from validating with the element schema
+	 * @return the location in the root schema
+	 */
+	public String rootLocation(String location) {
+		String elementLocation = this.schemaLocation + ELEMENT_POINTER;
+		if (location != null && (location.equals(elementLocation) || location.startsWith(elementLocation + "/"))) {
+			return this.schemaLocation + location.substring(elementLocation.length());
+		}
+		return location;
+	}
+
+	/**
+	 * Returns the root schema without the keywords checked while streaming.
+	 * @param schemaNode a streamable root schema
+	 * @return a copy without {@code minItems}, {@code maxItems} and {@code uniqueItems}
+	 */
+	static ObjectNode elementSchemaNode(JsonNode schemaNode) {
+		ObjectNode elementSchema = ((ObjectNode) schemaNode).deepCopy();
+		elementSchema.remove(STREAMED_KEYWORDS);
+		return elementSchema;
+	}
+
+}
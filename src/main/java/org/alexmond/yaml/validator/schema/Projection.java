@@ -0,0 +1,271 @@
+package org.alexmond.yaml.validator.schema;
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a document a schema can look at, worked out from the schema alone, so a
+ * parser can skip the rest at the token level instead of building nodes for it.
+ * <p>
+ * A projection is one of three kinds. {@link #ALL} keeps a value whole. {@link #NONE}
+ * marks a value the schema never looks at: only its presence counts, so the parser skips
+ * it and puts a {@code null} in its place. A shape keeps scalars and arrays whole and,
+ * for an object, keeps every property name (so {@code required},
+ * {@code additionalProperties: false}, {@code propertyNames} and the property counts see
+ * the same keys) while each property value follows the projection of its name, or the one
+ * for other names.
+ * <p>
+ * The analysis only narrows what it understands: {@code properties},
+ * {@code additionalProperties}, {@code patternProperties}, the applicators that apply
+ * subschemas to the same value ({@code allOf}, {@code anyOf}, {@code oneOf}, {@code not},
+ * {@code if}/{@code then}/{@code else}, {@code dependentSchemas}), local {@code $ref}s,
+ * and keywords that look at a value's type, scalar content or keys. Any other keyword, a
+ * remote or recursive {@code $ref}, or an {@code enum}/{@code const} with a structured
+ * value keeps the value whole, so a projected document always validates exactly like the
+ * full one.
+ */
+public final class Projection {
+
+	/**
+	 * Keeps the value whole.
+	 */
+	public static final Projection ALL = new Projection(Kind.ALL, Map.of(), null);
+
+	/**
+	 * Skips the value.
+	 */
+	public static final Projection NONE = new Projection(Kind.NONE, Map.of(), null);
+
+	private static final Projection LEAF = new Projection(Kind.SHAPE, Map.of(), NONE);
+
+	/** Keywords without effect on which parts of a value are looked at. */
+	private static final Set<String> NEUTRAL_KEYWORDS = Set.of("$schema", "$id", "id", "$anchor", "$comment",
+			"$defs", "definitions", "$vocabulary", "title", "description", "default", "examples", "deprecated",
+			"readOnly", "writeOnly");
+
+	/**
+	 * Keywords that look at the value's type, its scalar content or its property names,
+	 * or only at arrays, which are kept whole.
+	 */
+	private static final Set<String> SHAPE_KEYWORDS = Set.of("type", "format", "minLength", "maxLength", "pattern",
+			"minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum", "multipleOf", "required", "minProperties",
+			"maxProperties", "dependentRequired", "propertyNames", "items", "prefixItems", "additionalItems",
+			"unevaluatedItems", "contains", "minContains", "maxContains", "minItems", "maxItems", "uniqueItems",
+			"contentEncoding", "contentMediaType", "contentSchema");
+
+	/** Applicators whose subschemas apply to the value itself. */
+	private static final Set<String> IN_PLACE_KEYWORDS = Set.of("allOf", "anyOf", "oneOf", "not", "if", "then",
+			"else");
+
+	private final Kind kind;
+
+	private final Map<String, Projection> properties;
+
+	private final Projection otherProperties;
+
+	private Projection(Kind kind, Map<String, Projection> properties, Projection otherProperties) {
+		this.kind = kind;
+		this.properties = properties;
+		this.otherProperties = otherProperties;
+	}
+
+	/**
+	 * Works out the projection of a root schema.
+	 * @param schemaNode the root schema
+	 * @return the parts of a document the schema can look at
+	 */
+	public static Projection of(JsonNode schemaNode) {
+		return new Analysis(schemaNode).analyze(schemaNode);
+	}
+
+	/**
+	 * Tests whether the value is kept whole.
+	 * @return true for {@link #ALL}
+	 */
+	public boolean isAll() {
+		return this.kind == Kind.ALL;
+	}
+
+	/**
+	 * Tests whether the value is skipped.
+	 * @return true for {@link #NONE}
+	 */
+	public boolean isNone() {
+		return this.kind == Kind.NONE;
+	}
+
+	/**
+	 * Returns the projection of an object property's value.
+	 * @param name the property name
+	 * @return the projection of the value
+	 */
+	public Projection property(String name) {
+		if (this.kind != Kind.SHAPE) {
+			return this;
+		}
+		return this.properties.getOrDefault(name, this.otherProperties);
+	}
+
+	/**
+	 * Returns this projection with a top-level property kept, such as the {@code $schema}
+	 * header that picks the schema of a document.
+	 * @param name the property name
+	 * @return a projection keeping at least the property's scalar value
+	 */
+	public Projection keeping(String name) {
+		return merge(this, new Projection(Kind.SHAPE, Map.of(name, LEAF), NONE));
+	}
+
+	private static Projection merge(Projection first, Projection second) {
+		if (first.kind == Kind.ALL || second.kind == Kind.ALL) {
+			return ALL;
+		}
+		if (first.kind == Kind.NONE) {
+			return second;
+		}
+		if (second.kind == Kind.NONE) {
+			return first;
+		}
+		Map<String, Projection> properties = new HashMap<>();
+		for (Map.Entry<String, Projection> entry : first.properties.entrySet()) {
+			properties.put(entry.getKey(), merge(entry.getValue(), second.property(entry.getKey())));
+		}
+		for (Map.Entry<String, Projection> entry : second.properties.entrySet()) {
+			properties.putIfAbsent(entry.getKey(), merge(first.property(entry.getKey()), entry.getValue()));
+		}
+		return new Projection(Kind.SHAPE, Collections.unmodifiableMap(properties),
+				merge(first.otherProperties, second.otherProperties));
+	}
+
+	private enum Kind {
+
+		ALL, NONE, SHAPE
+
+	}
+
+	/**
+	 * One analysis of a root schema, following local references and keeping any cycle
+	 * whole.
+	 */
+	private static final class Analysis {
+
+		private final JsonNode root;
+
+		private final Set<JsonNode> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		Analysis(JsonNode root) {
+			this.root = root;
+		}
+
+		Projection analyze(JsonNode schema) {
+			if (schema == null) {
+				return ALL;
+			}
+			if (schema.isBoolean()) {
+				// true accepts and false rejects any value without looking at it
+				return NONE;
+			}
+			if (!schema.isObject() || !this.visiting.add(schema)) {
+				return ALL;
+			}
+			try {
+				Projection projection = NONE;
+				for (Map.Entry<String, JsonNode> keyword : schema.properties()) {
+					projection = merge(projection, keyword(keyword.getKey(), keyword.getValue()));
+					if (projection.isAll()) {
+						break;
+					}
+				}
+				return projection;
+			}
+			finally {
+				this.visiting.remove(schema);
+			}
+		}
+
+		private Projection keyword(String name, JsonNode value) {
+			if (NEUTRAL_KEYWORDS.contains(name)) {
+				return NONE;
+			}
+			if (SHAPE_KEYWORDS.contains(name)) {
+				return LEAF;
+			}
+			return switch (name) {
+				case "enum", "const" -> isScalar(value) ? LEAF : ALL;
+				case "properties" -> properties(value);
+				case "additionalProperties" -> new Projection(Kind.SHAPE, Map.of(), analyze(value));
+				case "patternProperties", "dependentSchemas" -> anyProperty(value);
+				case "$ref" -> reference(value);
+				default -> IN_PLACE_KEYWORDS.contains(name) ? inPlace(value) : ALL;
+			};
+		}
+
+		private Projection properties(JsonNode value) {
+			if (!value.isObject()) {
+				return ALL;
+			}
+			Map<String, Projection> properties = new HashMap<>();
+			for (Map.Entry<String, JsonNode> property : value.properties()) {
+				properties.put(property.getKey(), analyze(property.getValue()));
+			}
+			return new Projection(Kind.SHAPE, Collections.unmodifiableMap(properties), NONE);
+		}
+
+		/**
+		 * Analyzes a map of subschemas that may each apply to any property
+		 * ({@code patternProperties}) or to the object itself ({@code dependentSchemas}),
+		 * keeping for every property and for the object what any of them looks at.
+		 * @param value the map from patterns or property names to subschemas
+		 * @return the projection
+		 */
+		private Projection anyProperty(JsonNode value) {
+			if (!value.isObject()) {
+				return ALL;
+			}
+			Projection any = NONE;
+			for (Map.Entry<String, JsonNode> entry : value.properties()) {
+				any = merge(any, analyze(entry.getValue()));
+			}
+			return merge(any, new Projection(Kind.SHAPE, Map.of(), any));
+		}
+
+		private Projection inPlace(JsonNode value) {
+			if (!value.isArray()) {
+				return analyze(value);
+			}
+			Projection projection = NONE;
+			for (JsonNode subschema : value) {
+				projection = merge(projection, analyze(subschema));
+			}
+			return projection;
+		}
+
+		private Projection reference(JsonNode value) {
+			String ref = value.textValue();
+			if (ref == null || !ref.startsWith("#") || ref.indexOf('%') >= 0) {
+				return ALL;
+			}
+			JsonNode target = this.root.at(ref.substring(1));
+			return target.isMissingNode() ? ALL : analyze(target);
+		}
+
+		private static boolean isScalar(JsonNode value) {
+			if (value.isArray()) {
+				for (JsonNode element : value) {
+					if (element.isContainer()) {
+						return false;
+					}
+				}
+				return true;
+			}
+			return !value.isContainer();
+		}
+
+	}
+
+}
@@ -0,0 +1,262 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Serves schema documents from an offline bundle ({@code schemaBundle}) instead of the
+ * network. A bundle is either
+ * <ul>
+ * <li>a zip file or directory written by the {@code bundle} command, whose
+ * {@code index.json} maps each URI to an entry, or</li>
+ * <li>any directory of JSON/YAML schemas, indexed by the {@code $id} of each file.</li>
+ * </ul> For directories, {@code schemaBundleRewrites} rules
+ * ({@code <uri-prefix>=<path-prefix>}) additionally map URIs to files by prefix, relative
+ * to the bundle directory. Directory files are read when first looked up; zip entries
+ * through the zip's central directory, which is read once. Either way a document is read
+ * onto the heap whole, since the loader hashes, caches and parses its bytes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaBundle implements DisposableBean {
+
+	static final String INDEX = "index.json";
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	private final YAMLMapper yamlMapper = YAMLMapper.builder().build();
+
+	private final Object lock = new Object();
+
+	private volatile Contents contents;
+
+	/**
+	 * Tests whether a bundle is configured, in which case every remote lookup is served
+	 * from it.
+	 * @return true if {@code schemaBundle} is set
+	 */
+	public boolean isEnabled() {
+		return StringUtils.hasText(this.config.getSchemaBundle());
+	}
+
+	/**
+	 * Tests whether the bundle holds a document.
+	 * @param uri absolute URI of the document
+	 * @return true if {@link #lookup(String)} would find it
+	 */
+	public boolean contains(String uri) {
+		return contents().locate(uri) != null;
+	}
+
+	/**
+	 * Reads a document from the bundle.
+	 * @param uri absolute URI of the document
+	 * @return the document content, or null if the bundle does not hold it
+	 * @throws YamlValidationException if the bundle cannot be read
+	 */
+	public byte[] lookup(String uri) {
+		Contents current = contents();
+		String name = current.locate(uri);
+		if (name == null) {
+			return null;
+		}
+		try {
+			return current.read(name);
+		}
+		catch (IOException ex) {
+			throw new YamlValidationException(ex, null, uri);
+		}
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		Contents current = this.contents;
+		if (current != null && current.zip() != null) {
+			current.zip().close();
+		}
+	}
+
+	private Contents contents() {
+		Contents current = this.contents;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.contents;
+				if (current == null) {
+					current = open(Path.of(this.config.getSchemaBundle()));
+					this.contents = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private Contents open(Path path) {
+		try {
+			if (Files.isRegularFile(path)) {
+				ZipFile zip = new ZipFile(path.toFile());
+				ZipEntry indexEntry = zip.getEntry(INDEX);
+				if (indexEntry == null) {
+					zip.close();
+					throw new YamlValidationException("Schema bundle has no " + INDEX + ": " + path, null, null);
+				}
+				try (InputStream is = zip.getInputStream(indexEntry)) {
+					return new Contents(path, zip, readIndex(is.readAllBytes()), List.of());
+				}
+			}
+			List<Rewrite> rewrites = rewrites();
+			Path index = path.resolve(INDEX);
+			if (Files.isRegularFile(index)) {
+				return new Contents(path, null, readIndex(Files.readAllBytes(index)), rewrites);
+			}
+			if (Files.isDirectory(path)) {
+				return new Contents(path, null, indexById(path), rewrites);
+			}
+			throw new YamlValidationException("Schema bundle not found: " + path, null, null);
+		}
+		catch (IOException | JacksonException ex) {
+			throw new YamlValidationException(ex, null, null);
+		}
+	}
+
+	private Map<String, String> readIndex(byte[] content) {
+		return this.jsonMapper.readValue(content, new TypeReference<Map<String, String>>() {
+		});
+	}
+
+	/**
+	 * Indexes a plain directory of schemas by the {@code $id} declared in each file.
+	 * @param root the bundle directory
+	 * @return the {@code $id} of each schema mapped to its path relative to the directory
+	 */
+	private Map<String, String> indexById(Path root) throws IOException {
+		Map<String, String> index = new HashMap<>();
+		try (Stream<Path> files = Files.walk(root)) {
+			for (Path file : files.filter(Files::isRegularFile).toList()) {
+				String name = file.getFileName().toString();
+				boolean yaml = name.endsWith(".yaml") || name.endsWith(".yml");
+				if (!yaml && !name.endsWith(".json")) {
+					continue;
+				}
+				try {
+					byte[] content = Files.readAllBytes(file);
+					JsonNode schema = yaml ? this.yamlMapper.readTree(content) : this.jsonMapper.readTree(content);
+					JsonNode id = schema.get("$id");
+					if (id != null && id.isString()) {
+						index.putIfAbsent(stripFragment(id.asString()), root.relativize(file).toString());
+					}
+				}
+				catch (JacksonException ex) {
+					log.debug("Skipping unparsable bundle file {}: {}", file, ex.getMessage());
+				}
+			}
+		}
+		log.debug("Indexed {} schemas by $id in {}", index.size(), root);
+		return index;
+	}
+
+	private List<Rewrite> rewrites() {
+		List<String> rules = this.config.getSchemaBundleRewrites();
+		if (rules == null) {
+			return List.of();
+		}
+		return rules.stream().map(Rewrite::parse).toList();
+	}
+
+	private static String stripFragment(String uri) {
+		int fragment = uri.indexOf('#');
+		return (fragment >= 0) ? uri.substring(0, fragment) : uri;
+	}
+
+	/**
+	 * An opened bundle.
+	 *
+	 * @param root the bundle file or directory
+	 * @param zip the open zip file, or null for a directory bundle
+	 * @param index URIs mapped to zip entry names or relative paths
+	 * @param rewrites URI prefix rules, for directory bundles
+	 */
+	private record Contents(Path root, ZipFile zip, Map<String, String> index, List<Rewrite> rewrites) {
+
+		String locate(String uri) {
+			String document = stripFragment(uri);
+			String name = this.index.get(document);
+			if (name != null || this.zip != null) {
+				return name;
+			}
+			for (Rewrite rewrite : this.rewrites) {
+				if (document.startsWith(rewrite.uriPrefix())) {
+					String candidate = rewrite.pathPrefix() + document.substring(rewrite.uriPrefix().length());
+					if (Files.isRegularFile(resolve(candidate))) {
+						return candidate;
+					}
+				}
+			}
+			return null;
+		}
+
+		byte[] read(String name) throws IOException {
+			if (this.zip != null) {
+				ZipEntry entry = this.zip.getEntry(name);
+				if (entry == null) {
+					throw new IOException("Schema bundle entry missing: " + name);
+				}
+				try (InputStream is = this.zip.getInputStream(entry)) {
+					return is.readAllBytes();
+				}
+			}
+			return Files.readAllBytes(resolve(name));
+		}
+
+		private Path resolve(String name) {
+			Path file = this.root.resolve(name).normalize();
+			if (!file.startsWith(this.root.normalize())) {
+				throw new IllegalArgumentException("Schema bundle path escapes the bundle: " + name);
+			}
+			return file;
+		}
+
+	}
+
+	/**
+	 * A URI prefix rewrite rule.
+	 *
+	 * @param uriPrefix the URI prefix to match
+	 * @param pathPrefix the path prefix, relative to the bundle directory, replacing it
+	 */
+	private record Rewrite(String uriPrefix, String pathPrefix) {
+
+		static Rewrite parse(String rule) {
+			int separator = rule.lastIndexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Invalid schema bundle rewrite (<uri-prefix>=<path>): " + rule);
+			}
+			return new Rewrite(rule.substring(0, separator), rule.substring(separator + 1));
+		}
+
+	}
+
+}
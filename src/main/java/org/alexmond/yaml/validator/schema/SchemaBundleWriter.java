@@ -0,0 +1,146 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.catalog.CatalogEntry;
+import org.alexmond.yaml.validator.catalog.SchemaCatalogLoader;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes offline schema bundles for the {@code bundle} command. The given schemas and
+ * every remote document they reach through {@code $ref}s are downloaded concurrently (and
+ * through the disk cache), then written as one zip file, or a directory when the output
+ * does not end in {@code .zip}. Either way the bundle holds an {@code index.json} mapping
+ * each URI to its entry, which {@link SchemaBundle} serves from with
+ * {@code schemaBundle}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaBundleWriter {
+
+	private static final String ENTRY_PREFIX = "schemas/";
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final SchemaLoader schemaLoader;
+
+	private final SchemaCatalogLoader catalogLoader;
+
+	private final ValidationExecutor validationExecutor;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	/**
+	 * Lists the catalog itself and every schema it maps files to, for bundling the whole
+	 * catalog so auto-detection also works from the bundle.
+	 * @return the catalog URL followed by the schema URLs of its entries
+	 */
+	public List<String> catalogSchemas() {
+		List<String> urls = new ArrayList<>();
+		if (StringUtils.hasText(this.config.getCatalogUrl())) {
+			urls.add(this.config.getCatalogUrl());
+		}
+		List<CatalogEntry> entries = this.catalogLoader.load().getSchemas();
+		if (entries != null) {
+			for (CatalogEntry entry : entries) {
+				if (entry.getUrl() != null && SchemaLoader.isHttpUrl(entry.getUrl())) {
+					urls.add(entry.getUrl());
+				}
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * Downloads schemas with their transitive remote references and writes them as a
+	 * bundle. Documents that cannot be downloaded are left out and reported.
+	 * @param schemaPaths Paths or URLs of the root schemas; local schemas contribute the
+	 * remote documents they refer to
+	 * @param output the zip file or directory to write
+	 * @return the number of bundled documents and the failures, by URI
+	 * @throws IOException if the bundle cannot be written
+	 */
+	public Result write(Collection<String> schemaPaths, Path output) throws IOException {
+		Map<String, String> failures = new ConcurrentHashMap<>();
+		Map<String, byte[]> documents = new SchemaRefResolver(this.schemaLoader, this.validationExecutor)
+			.collect(schemaPaths, (uri, ex) -> failures.putIfAbsent(uri, ex.getMessage()));
+		Map<String, String> index = new LinkedHashMap<>();
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		for (Map.Entry<String, byte[]> document : documents.entrySet()) {
+			String name = ENTRY_PREFIX + SchemaDiskCache.sha256(document.getKey()) + extension(document.getKey());
+			index.put(document.getKey(), name);
+			entries.put(name, document.getValue());
+		}
+		byte[] indexContent = this.jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(index);
+		if (output.getFileName().toString().endsWith(".zip")) {
+			writeZip(output, indexContent, entries);
+		}
+		else {
+			writeDirectory(output, indexContent, entries);
+		}
+		log.debug("Bundled {} documents into {}", index.size(), output);
+		return new Result(index.size(), new TreeMap<>(failures));
+	}
+
+	private static void writeZip(Path output, byte[] index, Map<String, byte[]> entries) throws IOException {
+		Path parent = output.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		try (OutputStream os = Files.newOutputStream(output); ZipOutputStream zip = new ZipOutputStream(os)) {
+			zip.putNextEntry(new ZipEntry(SchemaBundle.INDEX));
+			zip.write(index);
+			zip.closeEntry();
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zip.putNextEntry(new ZipEntry(entry.getKey()));
+				zip.write(entry.getValue());
+				zip.closeEntry();
+			}
+		}
+	}
+
+	private static void writeDirectory(Path output, byte[] index, Map<String, byte[]> entries) throws IOException {
+		Files.createDirectories(output.resolve(ENTRY_PREFIX));
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			Files.write(output.resolve(entry.getKey()), entry.getValue());
+		}
+		// Written last, so an interrupted run never leaves an index of missing files
+		Files.write(output.resolve(SchemaBundle.INDEX), index);
+	}
+
+	private static String extension(String uri) {
+		String path = uri.toLowerCase();
+		return (path.endsWith(".yaml") || path.endsWith(".yml")) ? ".yaml" : ".json";
+	}
+
+	/**
+	 * The outcome of writing a bundle.
+	 *
+	 * @param documents the number of documents written
+	 * @param failures the error message of each document that could not be downloaded, by
+	 * URI
+	 */
+	public record Result(int documents, Map<String, String> failures) {
+
+	}
+
+}
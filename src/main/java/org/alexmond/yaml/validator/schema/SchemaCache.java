@@ -0,0 +1,208 @@
+package org.alexmond.yaml.validator.schema;
+
+import com.networknt.schema.Schema;
+import com.networknt.schema.SchemaLocation;
+import com.networknt.schema.SchemaRegistry;
+import com.networknt.schema.SchemaRegistryConfig;
+import com.networknt.schema.SpecificationVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.JsonNode;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of compiled schemas keyed by schema path or URL. Every schema is
+ * compiled by one shared {@link SchemaRegistry}, so schemas that {@code $ref} each other
+ * share compiled subschemas and resolved reference targets.
+ * <p>
+ * Loading is single-flight: the first caller for a key fetches, parses and compiles the
+ * schema while concurrent callers for the same key wait on that in-flight load instead of
+ * repeating it. A failed load is not cached, so a later call retries it.
+ * <p>
+ * A schema is only handed out once the remote documents it refers to through {@code $ref}
+ * have been fetched (concurrently, see {@link SchemaRefResolver}) and its validators are
+ * initialized, so validating a document does no I/O. Parsed schema trees are reused
+ * across runs through the {@link SchemaSnapshot}.
+ */
+@Slf4j
+@Component
+public class SchemaCache {
+
+	private final SchemaLoader schemaLoader;
+
+	private final SchemaSnapshot snapshot;
+
+	private final SchemaRefResolver refResolver;
+
+	private final SchemaRegistry schemaRegistry;
+
+	private final ConcurrentMap<String, CompletableFuture<Schema>> schemas = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Optional<ArraySchema>> arraySchemas = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Projection> projections = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder loadNanos = new LongAdder();
+
+	public SchemaCache(SchemaLoader schemaLoader, ValidationExecutor validationExecutor, SchemaSnapshot snapshot) {
+		this.schemaLoader = schemaLoader;
+		this.snapshot = snapshot;
+		this.refResolver = new SchemaRefResolver(schemaLoader, validationExecutor);
+		SchemaRegistryConfig registryConfig = SchemaRegistryConfig.builder().formatAssertionsEnabled(true).build();
+		this.schemaRegistry = SchemaRegistry.withDefaultDialect(SpecificationVersion.DRAFT_2020_12,
+				(builder) -> builder.schemaRegistryConfig(registryConfig).schemas(this.refResolver::content));
+	}
+
+	/**
+	 * Returns the compiled schema for a path or URL, loading it on first use. The
+	 * returned schema has its validators initialized and is ready to validate documents.
+	 * @param schemaPath Path or URL of the schema
+	 * @return the compiled schema
+	 * @throws org.alexmond.yaml.validator.YamlValidationException if the schema cannot be
+	 * loaded or parsed
+	 */
+	public Schema get(String schemaPath) {
+		CompletableFuture<Schema> existing = this.schemas.get(schemaPath);
+		if (existing == null) {
+			CompletableFuture<Schema> created = new CompletableFuture<>();
+			existing = this.schemas.putIfAbsent(schemaPath, created);
+			if (existing == null) {
+				this.misses.increment();
+				return load(schemaPath, created);
+			}
+		}
+		this.hits.increment();
+		return await(existing);
+	}
+
+	/**
+	 * Returns the element-by-element form of a schema whose root is an array of
+	 * {@code items}, compiling it on first use.
+	 * @param schemaPath Path or URL of the schema
+	 * @return the array schema, or null if the root schema constrains the array in ways
+	 * that need the whole array
+	 * @throws org.alexmond.yaml.validator.YamlValidationException if the schema cannot be
+	 * loaded or parsed
+	 */
+	public ArraySchema arraySchema(String schemaPath) {
+		Optional<ArraySchema> existing = this.arraySchemas.get(schemaPath);
+		if (existing == null) {
+			Schema schema = get(schemaPath);
+			existing = this.arraySchemas.computeIfAbsent(schemaPath,
+					(key) -> Optional.ofNullable(compileArraySchema(key, schema)));
+		}
+		return existing.orElse(null);
+	}
+
+	/**
+	 * Returns the parts of a document a schema can look at, analyzing it on first use.
+	 * @param schemaPath Path or URL of the schema
+	 * @return the projection of the schema
+	 * @throws org.alexmond.yaml.validator.YamlValidationException if the schema cannot be
+	 * loaded or parsed
+	 */
+	public Projection projection(String schemaPath) {
+		Projection existing = this.projections.get(schemaPath);
+		if (existing == null) {
+			Schema schema = get(schemaPath);
+			existing = this.projections.computeIfAbsent(schemaPath, (key) -> Projection.of(schema.getSchemaNode()));
+		}
+		return existing;
+	}
+
+	/**
+	 * Tests whether a schema can be returned without waiting on a download: it is already
+	 * compiled, or its source is local or in the disk cache.
+	 * @param schemaPath Path or URL of the schema
+	 * @return true if {@link #get(String)} needs no network access
+	 */
+	public boolean isAvailable(String schemaPath) {
+		CompletableFuture<Schema> future = this.schemas.get(schemaPath);
+		if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+			return true;
+		}
+		return this.schemaLoader.isAvailable(schemaPath);
+	}
+
+	/**
+	 * Returns a snapshot of the cache counters.
+	 * @return hits, misses and total load time so far
+	 */
+	public Stats stats() {
+		return new Stats(this.hits.sum(), this.misses.sum(), this.loadNanos.sum() / 1_000_000);
+	}
+
+	private Schema load(String schemaPath, CompletableFuture<Schema> future) {
+		long start = System.nanoTime();
+		try {
+			byte[] content = this.schemaLoader.load(schemaPath);
+			JsonNode schemaNode = this.snapshot.schema(schemaPath, content, this.schemaLoader::parse);
+			this.refResolver.prefetch(schemaPath, schemaNode);
+			Schema schema = this.schemaRegistry.getSchema(SchemaLocation.of(schemaPath), schemaNode);
+			// Once per cached schema rather than once per validated document
+			schema.initializeValidators();
+			future.complete(schema);
+			return schema;
+		}
+		catch (RuntimeException ex) {
+			// Not cached: waiters see this failure, later callers retry
+			this.schemas.remove(schemaPath, future);
+			future.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.loadNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	private ArraySchema compileArraySchema(String schemaPath, Schema schema) {
+		JsonNode schemaNode = schema.getSchemaNode();
+		if (!ArraySchema.isStreamable(schemaNode)) {
+			return null;
+		}
+		String location = String.valueOf(schema.getSchemaLocation());
+		String rootLocation = location.endsWith("#") ? location : location + "#";
+		SchemaLocation elementLocation = SchemaLocation.of(rootLocation + ArraySchema.ELEMENT_POINTER);
+		Schema elementSchema = this.schemaRegistry.getSchema(elementLocation,
+				ArraySchema.elementSchemaNode(schemaNode));
+		elementSchema.initializeValidators();
+		return new ArraySchema(elementSchema, rootLocation,
+				schemaNode.has("minItems") ? schemaNode.get("minItems").intValue() : null,
+				schemaNode.has("maxItems") ? schemaNode.get("maxItems").intValue() : null,
+				schemaNode.path("uniqueItems").booleanValue());
+	}
+
+	private static Schema await(CompletableFuture<Schema> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Schema cache counters.
+	 *
+	 * @param hits lookups served from the cache or by waiting on an in-flight load
+	 * @param misses lookups that loaded the schema
+	 * @param loadMillis total time spent loading and compiling schemas
+	 */
+	public record Stats(long hits, long misses, long loadMillis) {
+	}
+
+}
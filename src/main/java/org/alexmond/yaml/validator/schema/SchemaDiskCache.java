@@ -0,0 +1,249 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Persistent cache of downloaded schemas and catalogs, shared across runs and processes.
+ * <p>
+ * Response bodies are content-addressed: each body is stored once under
+ * {@code blobs/<sha-256 of the body>}, and {@code entries/<sha-256 of the URL>.json}
+ * records which body a URL resolved to together with its {@code ETag},
+ * {@code Last-Modified} and fetch time for conditional revalidation. Every file is
+ * written to a temporary file and atomically renamed into place, and blobs are never
+ * modified, so concurrent validator processes sharing the directory only ever see
+ * complete files; a blob that does not match its hash is treated as a miss.
+ * <p>
+ * When the directory cannot be created the cache stays disabled and every lookup misses.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaDiskCache {
+
+	private static final String APP_DIR = "yj-schema-validator";
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	private final Object lock = new Object();
+
+	private volatile Path root;
+
+	private volatile boolean resolved;
+
+	/**
+	 * Looks up the cached response for a URL.
+	 * @param url the fetched URL
+	 * @return the cached response, or null if there is none or it is unreadable
+	 */
+	public Cached lookup(String url) {
+		Path dir = root();
+		if (dir == null) {
+			return null;
+		}
+		try {
+			Path file = dir.resolve("entries").resolve(sha256(url) + ".json");
+			Entry entry = this.jsonMapper.readValue(Files.readAllBytes(file), Entry.class);
+			byte[] body = Files.readAllBytes(dir.resolve("blobs").resolve(entry.sha256()));
+			if (!sha256(body).equals(entry.sha256())) {
+				log.debug("Cached body for {} does not match its hash, ignoring it", url);
+				return null;
+			}
+			return new Cached(entry, body);
+		}
+		catch (NoSuchFileException ex) {
+			return null;
+		}
+		catch (IOException | JacksonException ex) {
+			log.debug("Unreadable cache entry for {}: {}", url, ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Reads only the metadata of the cached response for a URL.
+	 * @param url the fetched URL
+	 * @return the entry, or null if there is none or it is unreadable
+	 */
+	public Entry entry(String url) {
+		Path dir = root();
+		if (dir == null) {
+			return null;
+		}
+		try {
+			Path file = dir.resolve("entries").resolve(sha256(url) + ".json");
+			return this.jsonMapper.readValue(Files.readAllBytes(file), Entry.class);
+		}
+		catch (IOException | JacksonException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a freshly downloaded response.
+	 * @param url the fetched URL
+	 * @param body the response body
+	 * @param etag the {@code ETag} response header, may be null
+	 * @param lastModified the {@code Last-Modified} response header, may be null
+	 */
+	public void store(String url, byte[] body, String etag, String lastModified) {
+		Path dir = root();
+		if (dir == null) {
+			return;
+		}
+		String hash = sha256(body);
+		try {
+			Path blob = dir.resolve("blobs").resolve(hash);
+			if (!Files.exists(blob)) {
+				writeAtomically(blob, body);
+			}
+			writeEntry(dir, new Entry(url, hash, etag, lastModified, System.currentTimeMillis()));
+		}
+		catch (IOException | JacksonException ex) {
+			log.debug("Failed to cache {}: {}", url, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Records that a cached response was confirmed unchanged by the server, restarting
+	 * its time to live.
+	 * @param cached the revalidated response
+	 */
+	public void touch(Cached cached) {
+		Path dir = root();
+		if (dir == null) {
+			return;
+		}
+		Entry entry = cached.entry();
+		try {
+			writeEntry(dir, new Entry(entry.url(), entry.sha256(), entry.etag(), entry.lastModified(),
+					System.currentTimeMillis()));
+		}
+		catch (IOException | JacksonException ex) {
+			log.debug("Failed to refresh cache entry for {}: {}", entry.url(), ex.getMessage());
+		}
+	}
+
+	/**
+	 * Resolves the cache directory: the {@code cacheDir} setting, otherwise
+	 * {@code $XDG_CACHE_HOME/yj-schema-validator}, otherwise
+	 * {@code ~/.cache/yj-schema-validator}.
+	 * @return the cache directory
+	 */
+	Path directory() {
+		if (StringUtils.hasText(this.config.getCacheDir())) {
+			return Path.of(this.config.getCacheDir());
+		}
+		String xdgCacheHome = System.getenv("XDG_CACHE_HOME");
+		if (StringUtils.hasText(xdgCacheHome)) {
+			return Path.of(xdgCacheHome, APP_DIR);
+		}
+		return Path.of(System.getProperty("user.home"), ".cache", APP_DIR);
+	}
+
+	private Path root() {
+		if (!this.resolved) {
+			synchronized (this.lock) {
+				if (!this.resolved) {
+					Path dir = directory();
+					try {
+						Files.createDirectories(dir.resolve("entries"));
+						Files.createDirectories(dir.resolve("blobs"));
+						this.root = dir;
+					}
+					catch (IOException | RuntimeException ex) {
+						log.debug("Schema cache disabled, cannot create {}: {}", dir, ex.getMessage());
+					}
+					this.resolved = true;
+				}
+			}
+		}
+		return this.root;
+	}
+
+	private void writeEntry(Path dir, Entry entry) throws IOException {
+		Path file = dir.resolve("entries").resolve(sha256(entry.url()) + ".json");
+		writeAtomically(file, this.jsonMapper.writeValueAsBytes(entry));
+	}
+
+	static void writeAtomically(Path target, byte[] content) throws IOException {
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temp, content);
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	static String sha256(String value) {
+		return sha256(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static String sha256(byte[] value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 not available", ex);
+		}
+	}
+
+	/**
+	 * Metadata of a cached response.
+	 *
+	 * @param url the fetched URL
+	 * @param sha256 hash of the body, naming its blob
+	 * @param etag the {@code ETag} response header, may be null
+	 * @param lastModified the {@code Last-Modified} response header, may be null
+	 * @param fetchedAt when the response was downloaded or last revalidated, in epoch
+	 * millis
+	 */
+	public record Entry(String url, String sha256, String etag, String lastModified, long fetchedAt) {
+
+		/**
+		 * Tests whether the entry can be used without revalidating it.
+		 * @param ttl how long a response stays fresh
+		 * @return true if the entry is younger than the time to live
+		 */
+		public boolean isFresh(Duration ttl) {
+			return System.currentTimeMillis() - this.fetchedAt < ttl.toMillis();
+		}
+
+	}
+
+	/**
+	 * A cached response.
+	 *
+	 * @param entry the response metadata
+	 * @param body the response body
+	 */
+	public record Cached(Entry entry, byte[] body) {
+	}
+
+}
@@ -0,0 +1,394 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads remote schemas and the schema catalog through the {@link SchemaDiskCache}. A
+ * cached response younger than {@code cacheTtl} is used as is; an older one is
+ * revalidated with a conditional GET ({@code If-None-Match} / {@code If-Modified-Since})
+ * and reused on {@code 304 Not Modified}. If the server cannot be reached a stale cached
+ * copy is used rather than failing. In {@code offline} mode the network is never used and
+ * only cached responses are served.
+ * <p>
+ * All downloads share one {@link HttpClient}, created on first use, so connections (and
+ * the trust-all SSL context when {@code ignoreSslErrors} is set) are reused across
+ * schemas. Requests prefer HTTP/2, accept gzip-encoded bodies, and at most
+ * {@code httpMaxConnectionsPerHost} run against the same host at once.
+ * <p>
+ * When a {@link SchemaBundle} is configured it replaces both the network and the disk
+ * cache: every URL is served from the bundle, and a URL missing from it is an error.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaFetcher {
+
+	private static final int HTTP_SUCCESS_STATUS = 200;
+
+	private static final int HTTP_NOT_MODIFIED_STATUS = 304;
+
+	private static final String GZIP = "gzip";
+
+	private static final int HTTP_PORT = 80;
+
+	private static final int HTTPS_PORT = 443;
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final SchemaDiskCache diskCache;
+
+	private final SchemaBundle schemaBundle;
+
+	private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Failure> failures = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+	private final Object lock = new Object();
+
+	private volatile HttpClient httpClient;
+
+	/**
+	 * Returns the body of an HTTP(S) URL, from the disk cache when possible. Concurrent
+	 * calls for the same URL share one attempt, and a failed attempt is remembered for
+	 * {@code fetchFailureTtl} (the rest of the run by default): later calls fail at once
+	 * with the recorded error, marked as cached, instead of waiting out the timeout
+	 * again.
+	 * @param url URL to fetch
+	 * @return Raw response body
+	 * @throws YamlValidationException if the URL cannot be fetched and is not cached
+	 */
+	public byte[] fetch(String url) {
+		Failure failure = recordedFailure(url);
+		if (failure != null) {
+			throw failure.replay(url);
+		}
+		CompletableFuture<byte[]> attempt = new CompletableFuture<>();
+		CompletableFuture<byte[]> existing = this.inFlight.putIfAbsent(url, attempt);
+		if (existing != null) {
+			return await(existing);
+		}
+		try {
+			// An attempt that finished just before ours was registered may have failed
+			failure = recordedFailure(url);
+			if (failure != null) {
+				throw failure.replay(url);
+			}
+			byte[] body = download(url);
+			attempt.complete(body);
+			return body;
+		}
+		catch (YamlValidationException ex) {
+			this.failures.putIfAbsent(url, new Failure(ex.getMessage(), System.nanoTime()));
+			attempt.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.inFlight.remove(url, attempt);
+		}
+	}
+
+	/**
+	 * Tests whether a URL can be served from the disk cache without a network round trip.
+	 * @param url URL to check
+	 * @return true if a fresh cached copy exists, or any cached copy in offline mode, or
+	 * the schema bundle holds the URL; false if the schema bundle cannot be read, which
+	 * {@link #fetch(String)} then reports for each schema
+	 */
+	public boolean isCached(String url) {
+		if (this.schemaBundle.isEnabled()) {
+			try {
+				return this.schemaBundle.contains(url);
+			}
+			catch (RuntimeException ex) {
+				log.debug("Schema bundle {} cannot be read: {}", this.config.getSchemaBundle(), ex.getMessage());
+				return false;
+			}
+		}
+		SchemaDiskCache.Entry entry = this.diskCache.entry(url);
+		return entry != null && (this.config.isOffline() || entry.isFresh(this.config.getCacheTtl()));
+	}
+
+	/**
+	 * Returns any cached copy of a URL, however old, without using the network.
+	 * @param url URL to look up
+	 * @return the cached body, or null if the URL is neither cached nor in the schema
+	 * bundle
+	 */
+	public byte[] cachedCopy(String url) {
+		if (this.schemaBundle.isEnabled()) {
+			return this.schemaBundle.lookup(url);
+		}
+		SchemaDiskCache.Cached cached = this.diskCache.lookup(url);
+		return (cached != null) ? cached.body() : null;
+	}
+
+	/**
+	 * Tests whether the host of a URL, or the proxy used for it, accepts a connection
+	 * within the timeout. This notices an unavailable network quickly, where a download
+	 * would wait for the full {@code httpTimeout}.
+	 * @param url URL whose host is tried
+	 * @param timeout how long to wait for the connection
+	 * @return true if a connection was made; false when offline or a bundle is in use
+	 */
+	public boolean isReachable(String url, Duration timeout) {
+		if (this.schemaBundle.isEnabled() || this.config.isOffline()) {
+			return false;
+		}
+		try (Socket socket = new Socket()) {
+			socket.connect(connectAddress(URI.create(url)), (int) Math.max(1, timeout.toMillis()));
+			return true;
+		}
+		catch (IOException | IllegalArgumentException ex) {
+			log.debug("Cannot connect to the host of {}: {}", url, ex.getMessage());
+			return false;
+		}
+	}
+
+	private static InetSocketAddress connectAddress(URI uri) {
+		ProxySelector selector = ProxySelector.getDefault();
+		if (selector != null) {
+			for (Proxy proxy : selector.select(uri)) {
+				if (proxy.type() == Proxy.Type.HTTP && proxy.address() instanceof InetSocketAddress address) {
+					return address;
+				}
+			}
+		}
+		int port = uri.getPort();
+		if (port < 0) {
+			port = "https".equalsIgnoreCase(uri.getScheme()) ? HTTPS_PORT : HTTP_PORT;
+		}
+		return new InetSocketAddress(uri.getHost(), port);
+	}
+
+	private Failure recordedFailure(String url) {
+		Failure failure = this.failures.get(url);
+		if (failure != null && !failure.isActive(this.config.getFetchFailureTtl())) {
+			this.failures.remove(url, failure);
+			return null;
+		}
+		return failure;
+	}
+
+	/**
+	 * Waits for the attempt another call started. A failure is rethrown as that call saw
+	 * it, so it is only marked as cached when the attempt itself hit a recorded failure.
+	 * @param attempt the shared attempt
+	 * @return Raw response body
+	 */
+	private byte[] await(CompletableFuture<byte[]> attempt) {
+		try {
+			return attempt.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw ex;
+		}
+	}
+
+	private byte[] download(String url) {
+		if (this.schemaBundle.isEnabled()) {
+			byte[] bundled = this.schemaBundle.lookup(url);
+			if (bundled == null) {
+				String msg = url + " is not in the schema bundle " + this.config.getSchemaBundle();
+				log.debug(msg);
+				throw new YamlValidationException(msg, null, url);
+			}
+			return bundled;
+		}
+		SchemaDiskCache.Cached cached = this.diskCache.lookup(url);
+		if (cached != null && (this.config.isOffline() || cached.entry().isFresh(this.config.getCacheTtl()))) {
+			log.debug("Using cached copy of {}", url);
+			return cached.body();
+		}
+		if (this.config.isOffline()) {
+			String msg = "Offline mode: " + url + " is not in the schema cache";
+			log.debug(msg);
+			throw new YamlValidationException(msg, null, url);
+		}
+		HttpResponse<InputStream> response;
+		byte[] body;
+		try {
+			Semaphore permits = hostPermits(url);
+			permits.acquire();
+			try {
+				response = httpClient().send(createHttpRequest(url, cached), HttpResponse.BodyHandlers.ofInputStream());
+				body = readBody(response);
+			}
+			finally {
+				permits.release();
+			}
+		}
+		catch (IOException | InterruptedException ex) {
+			if (ex instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			if (cached != null) {
+				log.warn("Error fetching {} ({}), using stale cached copy", url, ex.getMessage());
+				return cached.body();
+			}
+			Throwable cause = ex;
+			if (ex instanceof IOException && ex.getCause() != null) {
+				cause = ex.getCause();
+			}
+			log.error("Error fetching schema from URL: {}, {}", url, cause.getMessage());
+			throw new YamlValidationException(cause, null, url);
+		}
+		if (cached != null && response.statusCode() == HTTP_NOT_MODIFIED_STATUS) {
+			log.debug("Cached copy of {} is still current", url);
+			this.diskCache.touch(cached);
+			return cached.body();
+		}
+		if (response.statusCode() != HTTP_SUCCESS_STATUS) {
+			String msg = "HTTP request failed with status code " + response.statusCode() + " for " + url;
+			log.debug(msg);
+			throw new YamlValidationException(msg, null, url);
+		}
+		this.diskCache.store(url, body, response.headers().firstValue("ETag").orElse(null),
+				response.headers().firstValue("Last-Modified").orElse(null));
+		return body;
+	}
+
+	/**
+	 * Reads a successful response body, decompressing it when the server sent it
+	 * gzip-encoded. Other responses are closed without reading their body.
+	 * @param response the response with its body still unread
+	 * @return the decoded body, or null if the status is not 200
+	 */
+	private static byte[] readBody(HttpResponse<InputStream> response) throws IOException {
+		try (InputStream body = response.body()) {
+			if (response.statusCode() != HTTP_SUCCESS_STATUS) {
+				return null;
+			}
+			boolean gzip = response.headers()
+				.firstValue("Content-Encoding")
+				.filter((encoding) -> encoding.equalsIgnoreCase(GZIP))
+				.isPresent();
+			try (InputStream decoded = gzip ? new GZIPInputStream(body) : body) {
+				return decoded.readAllBytes();
+			}
+		}
+	}
+
+	private Semaphore hostPermits(String url) {
+		String host = URI.create(url).getAuthority();
+		return this.hostPermits.computeIfAbsent((host != null) ? host : "",
+				(key) -> new Semaphore(Math.max(1, this.config.getHttpMaxConnectionsPerHost())));
+	}
+
+	private HttpClient httpClient() {
+		HttpClient current = this.httpClient;
+		if (current == null) {
+			synchronized (this.lock) {
+				current = this.httpClient;
+				if (current == null) {
+					current = createHttpClient();
+					this.httpClient = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private HttpClient createHttpClient() {
+		HttpClient.Builder builder = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.connectTimeout(config.getHttpTimeout());
+
+		if (config.isIgnoreSslErrors()) {
+			try {
+				SSLContext sslContext = SSLContext.getInstance("TLS");
+				sslContext.init(null, new TrustManager[] { new X509TrustManager() {
+					@Override
+					public void checkClientTrusted(X509Certificate[] chain, String authType) {
+					}
+
+					@Override
+					public void checkServerTrusted(X509Certificate[] chain, String authType) {
+					}
+
+					@Override
+					public X509Certificate[] getAcceptedIssuers() {
+						return new X509Certificate[0];
+					}
+				} }, new SecureRandom());
+
+				builder.sslContext(sslContext).sslParameters(new SSLParameters());
+			}
+			catch (NoSuchAlgorithmException | KeyManagementException ex) {
+				log.warn("Failed to initialize SSL context for ignoring certificate validation: {}", ex.getMessage());
+			}
+		}
+
+		return builder.build();
+	}
+
+	private HttpRequest createHttpRequest(String url, SchemaDiskCache.Cached cached) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder()
+			.uri(URI.create(url))
+			.header("Accept-Encoding", GZIP)
+			.GET();
+		if (cached != null) {
+			if (cached.entry().etag() != null) {
+				builder.header("If-None-Match", cached.entry().etag());
+			}
+			if (cached.entry().lastModified() != null) {
+				builder.header("If-Modified-Since", cached.entry().lastModified());
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * A failed fetch remembered so it is not retried.
+	 *
+	 * @param message the error message of the failed attempt
+	 * @param recordedAt when the attempt failed, in {@link System#nanoTime()} units
+	 */
+	private record Failure(String message, long recordedAt) {
+
+		boolean isActive(Duration ttl) {
+			return ttl == null || System.nanoTime() - this.recordedAt < ttl.toNanos();
+		}
+
+		YamlValidationException replay(String url) {
+			return new YamlValidationException(this.message + " (cached failure, not retried)", null, url);
+		}
+
+	}
+
+}
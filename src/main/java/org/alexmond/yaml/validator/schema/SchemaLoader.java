@@ -0,0 +1,121 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.FormatDetector;
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.InputFormat;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLMapper;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads JSON Schema sources, from the local file system or over HTTP(S) through
+ * {@link SchemaFetcher}, and parses them into {@link JsonNode} trees. Compilation and
+ * caching are handled by {@link SchemaCache}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaLoader {
+
+	private final SchemaFetcher schemaFetcher;
+
+	private final YAMLMapper yamlMapper = YAMLMapper.builder().build();
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	/**
+	 * Retrieves schema content from either a local file or HTTP URL.
+	 * @param schemaPath Path or URL to the schema
+	 * @return Raw schema content
+	 * @throws YamlValidationException if schema cannot be retrieved
+	 */
+	public byte[] load(String schemaPath) {
+		if (isHttpUrl(schemaPath)) {
+			return schemaFetcher.fetch(schemaPath);
+		}
+		else {
+			return readSchemaFromFile(schemaPath);
+		}
+	}
+
+	/**
+	 * Tests whether a schema can be loaded without network access: local files always
+	 * can, URLs when a fresh copy is in the disk cache.
+	 * @param schemaPath Path or URL to the schema
+	 * @return true if loading the schema does not need a download
+	 */
+	public boolean isAvailable(String schemaPath) {
+		return !isHttpUrl(schemaPath) || schemaFetcher.isCached(schemaPath);
+	}
+
+	/**
+	 * Tests whether a schema reference is an HTTP(S) URL rather than a local path.
+	 * @param schemaPath Path or URL to the schema
+	 * @return true for {@code http://} and {@code https://} references
+	 */
+	public static boolean isHttpUrl(String schemaPath) {
+		return schemaPath.startsWith("http://") || schemaPath.startsWith("https://");
+	}
+
+	/**
+	 * Reads schema content from a local file.
+	 * @param schemaPath Path to the schema file
+	 * @return Raw schema content
+	 * @throws YamlValidationException if file cannot be read
+	 */
+	private byte[] readSchemaFromFile(String schemaPath) {
+		try (InputStream is = new FileInputStream(schemaPath)) {
+			return is.readAllBytes();
+		}
+		catch (FileNotFoundException ex) {
+			String msg = "NoSuchFileException: " + schemaPath;
+			log.error(msg);
+			throw new YamlValidationException(msg, null, schemaPath);
+		}
+		catch (IOException ex) {
+			String msg = "Error reading schema from file: " + schemaPath;
+			log.error("{}, {}", msg, ex.getMessage());
+			throw new YamlValidationException(ex, null, schemaPath);
+		}
+	}
+
+	/**
+	 * Parses schema content as either JSON or YAML into a JsonNode, choosing the parser
+	 * up front with {@link FormatDetector}.
+	 * @param filePath Path to the file being parsed (used for error reporting)
+	 * @param content Raw schema bytes to parse
+	 * @return Parsed JsonNode
+	 * @throws YamlValidationException if content cannot be parsed as either JSON or YAML
+	 */
+	public JsonNode parse(String filePath, byte[] content) {
+		if (FormatDetector.detect(content, InputFormat.AUTO) == InputFormat.JSON) {
+			try {
+				return jsonMapper.readTree(content);
+			}
+			catch (JacksonException ex) {
+				if (!FormatDetector.allowsYamlFallback(filePath, InputFormat.AUTO)) {
+					log.debug("Error parsing schema as JSON: {}, {}", filePath, ex.getMessage());
+					throw new YamlValidationException(ex, null, filePath);
+				}
+				log.debug("Error parsing schema as JSON, trying YAML: {}, {}", filePath, ex.getMessage());
+			}
+		}
+		try {
+			return yamlMapper.readTree(content);
+		}
+		catch (JacksonException ex) {
+			log.debug("Error parsing schema as YAML: {}, {}", filePath, ex.getMessage());
+			throw new YamlValidationException(ex, null, filePath);
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import tools.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Resolves the remote documents a schema refers to before the schema is compiled, so
+ * validation never stalls on a download in the middle of a document.
+ * <p>
+ * {@link #prefetch(String, JsonNode)} walks the {@code $ref} graph breadth first: every
+ * external HTTP(S) target of the current level is loaded concurrently through the shared
+ * {@link SchemaLoader} (and so through the disk cache), parsed, and scanned for the next
+ * level. The registry then reads those documents through {@link #content(String)} instead
+ * of its own network loader.
+ */
+@Slf4j
+class SchemaRefResolver {
+
+	/**
+	 * Keywords whose values are instance data rather than subschemas, so a {@code "$ref"}
+	 * key below them is not a reference.
+	 */
+	private static final Set<String> DATA_KEYWORDS = Set.of("enum", "const", "examples", "default");
+
+	private final SchemaLoader schemaLoader;
+
+	private final ValidationExecutor validationExecutor;
+
+	private final ConcurrentMap<String, String> documents = new ConcurrentHashMap<>();
+
+	SchemaRefResolver(SchemaLoader schemaLoader, ValidationExecutor validationExecutor) {
+		this.schemaLoader = schemaLoader;
+		this.validationExecutor = validationExecutor;
+	}
+
+	/**
+	 * Loads every remote document reachable from a schema through {@code $ref}s.
+	 * Documents that cannot be loaded are skipped; the registry reports them when the
+	 * reference is resolved.
+	 * @param schemaPath Path or URL of the schema
+	 * @param schemaNode The parsed schema
+	 */
+	void prefetch(String schemaPath, JsonNode schemaNode) {
+		URI base = baseUri(schemaPath);
+		Set<String> seen = ConcurrentHashMap.newKeySet();
+		seen.add(documentUri(base));
+		int fetched = walk(externalRefs(base, schemaNode, seen), seen,
+				(uri, content) -> this.documents.putIfAbsent(uri, new String(content, StandardCharsets.UTF_8)),
+				(uri, ex) -> log.debug("Could not prefetch referenced document {}: {}", uri, ex.getMessage()));
+		if (fetched > 0) {
+			log.debug("Prefetched {} referenced documents for {}", fetched, schemaPath);
+		}
+	}
+
+	/**
+	 * Loads a set of schemas and every remote document reachable from them through
+	 * {@code $ref}s, for writing a schema bundle. Local schemas are not collected
+	 * themselves, only the remote documents they refer to.
+	 * @param schemaPaths Paths or URLs of the root schemas
+	 * @param failures receives each document that could not be loaded, possibly from
+	 * several threads at once
+	 * @return the content of each collected document by absolute URI, sorted by URI
+	 */
+	Map<String, byte[]> collect(Collection<String> schemaPaths, BiConsumer<String, RuntimeException> failures) {
+		Map<String, byte[]> collected = new ConcurrentHashMap<>();
+		Set<String> seen = ConcurrentHashMap.newKeySet();
+		List<String> level = new ArrayList<>();
+		for (String schemaPath : schemaPaths) {
+			if (SchemaLoader.isHttpUrl(schemaPath)) {
+				String uri = documentUri(URI.create(schemaPath));
+				if (seen.add(uri)) {
+					level.add(uri);
+				}
+				continue;
+			}
+			try {
+				JsonNode schema = this.schemaLoader.parse(schemaPath, this.schemaLoader.load(schemaPath));
+				level.addAll(externalRefs(baseUri(schemaPath), schema, seen));
+			}
+			catch (RuntimeException ex) {
+				failures.accept(schemaPath, ex);
+			}
+		}
+		walk(level, seen, collected::put, failures);
+		return new TreeMap<>(collected);
+	}
+
+	/**
+	 * Serves a document to the schema registry by absolute IRI: prefetched documents from
+	 * memory, other HTTP(S) documents through the shared loader.
+	 * @param iri the absolute IRI the registry resolves
+	 * @return the document content, or null to let the registry load it itself
+	 */
+	String content(String iri) {
+		String uri = documentUri(URI.create(iri));
+		String content = this.documents.get(uri);
+		if (content == null && SchemaLoader.isHttpUrl(uri)) {
+			content = new String(this.schemaLoader.load(uri), StandardCharsets.UTF_8);
+			this.documents.putIfAbsent(uri, content);
+		}
+		return content;
+	}
+
+	/**
+	 * Walks the {@code $ref} graph breadth first, loading each level concurrently.
+	 * @param level the first level of remote document URIs, already marked as seen
+	 * @param seen documents already loaded or being loaded
+	 * @param sink receives the content of each loaded document
+	 * @param failures receives each document that could not be loaded
+	 * @return the number of documents attempted
+	 */
+	private int walk(List<String> level, Set<String> seen, BiConsumer<String, byte[]> sink,
+			BiConsumer<String, RuntimeException> failures) {
+		int attempted = 0;
+		while (!level.isEmpty()) {
+			List<CompletableFuture<List<String>>> loads = new ArrayList<>(level.size());
+			for (String uri : level) {
+				loads.add(this.validationExecutor.supplyAsync(() -> load(uri, seen, sink, failures)));
+			}
+			attempted += level.size();
+			List<String> next = new ArrayList<>();
+			for (CompletableFuture<List<String>> load : loads) {
+				next.addAll(load.join());
+			}
+			level = next;
+		}
+		return attempted;
+	}
+
+	private List<String> load(String uri, Set<String> seen, BiConsumer<String, byte[]> sink,
+			BiConsumer<String, RuntimeException> failures) {
+		try {
+			byte[] content = this.schemaLoader.load(uri);
+			sink.accept(uri, content);
+			return externalRefs(URI.create(uri), this.schemaLoader.parse(uri, content), seen);
+		}
+		catch (RuntimeException ex) {
+			failures.accept(uri, ex);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Collects the remote documents referenced from a schema that have not been seen yet.
+	 * @param base the base URI of the schema
+	 * @param node the schema or subschema
+	 * @param seen documents already loaded or being loaded, updated atomically
+	 * @return newly seen remote document URIs
+	 */
+	private static List<String> externalRefs(URI base, JsonNode node, Set<String> seen) {
+		List<String> refs = new ArrayList<>();
+		collectRefs(base, node, seen, refs);
+		return refs;
+	}
+
+	private static void collectRefs(URI base, JsonNode node, Set<String> seen, List<String> refs) {
+		if (node.isArray()) {
+			for (JsonNode element : node) {
+				collectRefs(base, element, seen, refs);
+			}
+			return;
+		}
+		if (!node.isObject()) {
+			return;
+		}
+		JsonNode id = node.get("$id");
+		if (id != null && id.isString()) {
+			base = resolve(base, id.asString());
+		}
+		for (Map.Entry<String, JsonNode> property : node.properties()) {
+			JsonNode value = property.getValue();
+			if ("$ref".equals(property.getKey()) && value.isString()) {
+				URI target = resolve(base, value.asString());
+				String uri = (target != null) ? documentUri(target) : null;
+				if (uri != null && SchemaLoader.isHttpUrl(uri) && seen.add(uri)) {
+					refs.add(uri);
+				}
+			}
+			else if (!DATA_KEYWORDS.contains(property.getKey())) {
+				collectRefs(base, value, seen, refs);
+			}
+		}
+	}
+
+	private static URI resolve(URI base, String ref) {
+		try {
+			return (base != null) ? base.resolve(ref) : URI.create(ref);
+		}
+		catch (IllegalArgumentException ex) {
+			return base;
+		}
+	}
+
+	private static URI baseUri(String schemaPath) {
+		if (SchemaLoader.isHttpUrl(schemaPath)) {
+			return URI.create(schemaPath);
+		}
+		return Path.of(schemaPath).toAbsolutePath().toUri();
+	}
+
+	private static String documentUri(URI uri) {
+		String value = uri.toString();
+		int fragment = value.indexOf('#');
+		return (fragment >= 0) ? value.substring(0, fragment) : value;
+	}
+
+}
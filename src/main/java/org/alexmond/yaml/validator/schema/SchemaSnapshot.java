@@ -0,0 +1,250 @@
+package org.alexmond.yaml.validator.schema;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.alexmond.yaml.validator.catalog.CatalogEntry;
+import org.alexmond.yaml.validator.catalog.SchemaCatalog;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.util.ByteBufferBackedInputStream;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Warm-start snapshot of parsed schemas and the catalog index, so short runs do not parse
+ * the same sources again. The snapshot is a CBOR file, {@code snapshot.cbor} in the
+ * schema cache directory, parsed straight from a memory mapping on first use and
+ * rewritten when the application shuts down. Only the schemas this run used are written
+ * back, so a schema no longer in use drops out and the file holds one run's working set.
+ * Schema trees stay CBOR-encoded in memory until a run asks for them, so reading the
+ * snapshot only decodes the trees actually used.
+ * <p>
+ * Every entry records the SHA-256 of the source it was parsed from and is only used while
+ * the current source hashes the same, so an edited schema file or a refreshed catalog is
+ * parsed again. The catalog is kept as an index of file patterns and schema URLs; names
+ * and descriptions are dropped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaSnapshot implements DisposableBean {
+
+	static final String FILE_NAME = "snapshot.cbor";
+
+	private static final int VERSION = 2;
+
+	private final YamlSchemaValidatorConfig config;
+
+	private final SchemaDiskCache diskCache;
+
+	private final CBORMapper cborMapper = CBORMapper.builder().build();
+
+	private final ConcurrentMap<String, SchemaEntry> schemas = new ConcurrentHashMap<>();
+
+	private final Set<String> used = ConcurrentHashMap.newKeySet();
+
+	private final Object lock = new Object();
+
+	private volatile boolean loaded;
+
+	private volatile CatalogIndex catalog;
+
+	private volatile boolean dirty;
+
+	/**
+	 * Returns the parsed tree of a schema, from the snapshot when it was parsed from the
+	 * same content before.
+	 * @param schemaPath Path or URL of the schema
+	 * @param content Raw schema content
+	 * @param parser Parses the content when the snapshot has no current tree
+	 * @return the parsed schema
+	 */
+	public JsonNode schema(String schemaPath, byte[] content, BiFunction<String, byte[], JsonNode> parser) {
+		if (!this.config.isWarmStart()) {
+			return parser.apply(schemaPath, content);
+		}
+		load();
+		this.used.add(schemaPath);
+		String source = SchemaDiskCache.sha256(content);
+		SchemaEntry entry = this.schemas.get(schemaPath);
+		if (entry != null && entry.source().equals(source)) {
+			try {
+				JsonNode node = this.cborMapper.readTree(entry.tree());
+				log.debug("Using snapshot of schema {}", schemaPath);
+				return node;
+			}
+			catch (JacksonException ex) {
+				log.debug("Ignoring unreadable snapshot of schema {}: {}", schemaPath, ex.getMessage());
+			}
+		}
+		JsonNode node = parser.apply(schemaPath, content);
+		this.schemas.put(schemaPath, new SchemaEntry(source, this.cborMapper.writeValueAsBytes(node)));
+		this.dirty = true;
+		return node;
+	}
+
+	/**
+	 * Returns the catalog index, from the snapshot when it was built from the same
+	 * catalog content before.
+	 * @param content Raw catalog content
+	 * @param parser Parses the content when the snapshot has no current index
+	 * @return the catalog, with only the file patterns and URL of each entry
+	 */
+	public SchemaCatalog catalog(byte[] content, Function<byte[], SchemaCatalog> parser) {
+		if (!this.config.isWarmStart()) {
+			return parser.apply(content);
+		}
+		load();
+		String source = SchemaDiskCache.sha256(content);
+		CatalogIndex index = this.catalog;
+		if (index == null || !index.source().equals(source)) {
+			index = new CatalogIndex(source, indexOf(parser.apply(content)));
+			this.catalog = index;
+			this.dirty = true;
+		}
+		else {
+			log.debug("Using snapshot of schema catalog ({} entries)", index.schemas().size());
+		}
+		SchemaCatalog catalog = new SchemaCatalog();
+		catalog.setSchemas(index.schemas());
+		return catalog;
+	}
+
+	@Override
+	public void destroy() {
+		save();
+	}
+
+	/**
+	 * Writes the snapshot if anything was parsed since it was read or some of its schemas
+	 * were not used by this run, keeping only the schemas this run used.
+	 */
+	void save() {
+		if (!this.dirty && this.used.containsAll(this.schemas.keySet())) {
+			return;
+		}
+		Path file = this.diskCache.directory().resolve(FILE_NAME);
+		try {
+			Files.createDirectories(file.getParent());
+			Map<String, SchemaEntry> kept = new TreeMap<>();
+			for (String schemaPath : this.used) {
+				SchemaEntry entry = this.schemas.get(schemaPath);
+				if (entry != null) {
+					kept.put(schemaPath, entry);
+				}
+			}
+			Snapshot snapshot = new Snapshot(VERSION, this.catalog, kept);
+			SchemaDiskCache.writeAtomically(file, this.cborMapper.writeValueAsBytes(snapshot));
+			this.schemas.keySet().retainAll(kept.keySet());
+			this.dirty = false;
+			log.debug("Wrote warm-start snapshot of {} schemas to {}", kept.size(), file);
+		}
+		catch (IOException | JacksonException ex) {
+			log.debug("Failed to write warm-start snapshot {}: {}", file, ex.getMessage());
+		}
+	}
+
+	private void load() {
+		if (this.loaded) {
+			return;
+		}
+		synchronized (this.lock) {
+			if (this.loaded) {
+				return;
+			}
+			Path file = this.diskCache.directory().resolve(FILE_NAME);
+			try {
+				if (Files.isRegularFile(file)) {
+					Snapshot snapshot = read(file);
+					if (snapshot.version() == VERSION) {
+						this.catalog = snapshot.catalog();
+						if (snapshot.schemas() != null) {
+							snapshot.schemas().forEach(this.schemas::putIfAbsent);
+						}
+						log.debug("Read warm-start snapshot of {} schemas from {}", this.schemas.size(), file);
+					}
+				}
+			}
+			catch (IOException | JacksonException ex) {
+				log.debug("Ignoring unreadable warm-start snapshot {}: {}", file, ex.getMessage());
+			}
+			this.loaded = true;
+		}
+	}
+
+	/**
+	 * Parses the snapshot from a read-only memory mapping of the file, without copying it
+	 * onto the heap first.
+	 */
+	private Snapshot read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return this.cborMapper.readValue(
+					new ByteBufferBackedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())),
+					Snapshot.class);
+		}
+	}
+
+	private static List<CatalogEntry> indexOf(SchemaCatalog catalog) {
+		List<CatalogEntry> index = new ArrayList<>();
+		if (catalog != null && catalog.getSchemas() != null) {
+			for (CatalogEntry entry : catalog.getSchemas()) {
+				if (entry.getUrl() != null && entry.getFileMatch() != null) {
+					CatalogEntry indexed = new CatalogEntry();
+					indexed.setUrl(entry.getUrl());
+					indexed.setFileMatch(entry.getFileMatch());
+					index.add(indexed);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * The snapshot file content.
+	 *
+	 * @param version format version; snapshots of another version are ignored
+	 * @param catalog the catalog index, may be null
+	 * @param schemas parsed schemas by path or URL, those used by the run that wrote it
+	 */
+	record Snapshot(int version, CatalogIndex catalog, Map<String, SchemaEntry> schemas) {
+
+	}
+
+	/**
+	 * The catalog reduced to what auto-detection uses.
+	 *
+	 * @param source SHA-256 of the catalog content it was built from
+	 * @param schemas entries with only their file patterns and schema URL
+	 */
+	record CatalogIndex(String source, List<CatalogEntry> schemas) {
+
+	}
+
+	/**
+	 * A parsed schema.
+	 *
+	 * @param source SHA-256 of the content it was parsed from
+	 * @param tree the parsed schema, CBOR-encoded
+	 */
+	record SchemaEntry(String source, byte[] tree) {
+
+	}
+
+}
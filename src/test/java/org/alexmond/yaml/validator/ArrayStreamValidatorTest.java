@@ -0,0 +1,122 @@
+package org.alexmond.yaml.validator;
+
+import com.networknt.schema.output.OutputUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrayStreamValidatorTest {
+
+	@TempDir
+	Path cacheDir;
+
+	private static final String SCHEMA = """
+			{
+			  "type": "array",
+			  "minItems": 1,
+			  "maxItems": 3,
+			  "uniqueItems": true,
+			  "items": { "$ref": "#/$defs/service" },
+			  "$defs": {
+			    "service": {
+			      "type": "object",
+			      "properties": { "name": { "type": "string" }, "replicas": { "type": "integer" } },
+			      "required": [ "name" ]
+			    }
+			  }
+			}
+			""";
+
+	private YamlSchemaValidator newValidator(boolean streamArrays) {
+		return TestValidators.validator(this.cacheDir, (config) -> config.setStreamArrays(streamArrays));
+	}
+
+	private static List<String> locations(OutputUnit outputUnit) {
+		return outputUnit.getDetails().stream().map(OutputUnit::getInstanceLocation).toList();
+	}
+
+	@Test
+	void reportsElementErrorsLikeTreeValidation(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path data = Files.writeString(dir.resolve("data.json"),
+				"[{\"name\": \"a\"}, {\"name\": \"b\", \"replicas\": \"two\"}, {\"replicas\": 1}]");
+
+		OutputUnit streamed = newValidator(true).validate(data.toString(), schema.toString()).get(data.toString());
+		OutputUnit tree = newValidator(false).validate(data.toString(), schema.toString()).get(data.toString());
+
+		assertFalse(streamed.isValid());
+		assertEquals(List.of("/1/replicas", "/2"), locations(streamed));
+		assertEquals(locations(tree), locations(streamed));
+		for (int i = 0; i < tree.getDetails().size(); i++) {
+			OutputUnit expected = tree.getDetails().get(i);
+			assertEquals(expected.getEvaluationPath(), streamed.getDetails().get(i).getEvaluationPath());
+			assertEquals(expected.getSchemaLocation(), streamed.getDetails().get(i).getSchemaLocation());
+			assertEquals(expected.getErrors(), streamed.getDetails().get(i).getErrors());
+		}
+	}
+
+	@Test
+	void checksArrayKeywordsWhileStreaming(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path tooMany = Files.writeString(dir.resolve("many.yaml"), """
+				- name: a
+				- name: b
+				- {replicas: 2, name: a}
+				- name: a
+				""");
+		Path valid = Files.writeString(dir.resolve("valid.yaml"), "- name: a\n- name: b\n");
+
+		Map<String, OutputUnit> results = newValidator(true).validate(tooMany.toString(), schema.toString());
+		OutputUnit outputUnit = results.get(tooMany.toString());
+
+		assertFalse(outputUnit.isValid());
+		assertEquals(List.of("maxItems", "uniqueItems"),
+				outputUnit.getDetails().stream().flatMap((detail) -> detail.getErrors().keySet().stream()).toList());
+		assertTrue(newValidator(true).validate(valid.toString(), schema.toString()).get(valid.toString()).isValid());
+	}
+
+	@Test
+	void keepsRootSchemaForDocumentValidationAfterStreaming(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path streamed = Files.writeString(dir.resolve("streamed.json"), "[{\"name\": \"a\"}]");
+		// The second document makes this a multi-document file, validated against the root
+		Path documents = Files.writeString(dir.resolve("documents.yaml"), """
+				- name: a
+				- name: b
+				- name: c
+				- name: d
+				---
+				- name: a
+				""");
+		YamlSchemaValidator validator = newValidator(true);
+
+		assertTrue(validator.validate(streamed.toString(), schema.toString()).get(streamed.toString()).isValid());
+		Map<String, OutputUnit> results = validator.validate(documents.toString(), schema.toString());
+
+		assertFalse(results.get(documents + "-1").isValid());
+		assertTrue(results.get(documents + "-2").isValid());
+	}
+
+	@Test
+	void leavesOtherContentToDocumentValidation(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path object = Files.writeString(dir.resolve("object.json"), "{\"name\": \"a\"}");
+		Path broken = Files.writeString(dir.resolve("broken.json"), "[{\"name\": \"a\"},");
+
+		assertFalse(newValidator(true).validate(object.toString(), schema.toString()).get(object.toString()).isValid());
+		OutputUnit expected = newValidator(false).validate(broken.toString(), schema.toString()).get(broken.toString());
+		OutputUnit actual = newValidator(true).validate(broken.toString(), schema.toString()).get(broken.toString());
+		assertFalse(actual.isValid());
+		assertEquals(expected.getErrors(), actual.getErrors());
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.alexmond.yaml.validator;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ContentPrefixTest {
+
+	private static Map<String, String> read(int keys, String json) {
+		JsonMapper mapper = JsonMapper.builder().build();
+		ContentPrefix prefix = new ContentPrefix(keys);
+		try (JsonParser parser = prefix.capture(mapper.createParser(json))) {
+			mapper.readTree(parser);
+		}
+		return prefix.fields();
+	}
+
+	@Test
+	void readsOnlyTheFirstScalarKeys() {
+		String json = "{\"metadata\": {\"name\": \"x\"}, \"apiVersion\": \"v1\", \"kind\": \"Secret\", \"data\": 1}";
+
+		assertEquals(Map.of("apiVersion", "v1", "kind", "Secret"), Map.copyOf(read(3, json)));
+		assertEquals(Map.of("apiVersion", "v1"), Map.copyOf(read(2, json)));
+		assertEquals(Map.of(), read(16, "[1, 2]"));
+	}
+
+	@Test
+	void collectsEachDocumentIntoItsOwnMap() {
+		YAMLMapper mapper = YAMLMapper.builder().build();
+		String yaml = "kind: Service\nspec: {kind: x}\n---\n- kind: y\n---\nopenapi: 3.1.0\n";
+		ContentPrefix prefix = new ContentPrefix(16);
+		List<Map<String, String>> fields = new ArrayList<>();
+		try (MappingIterator<JsonNode> documents = mapper.readValues(prefix.capture(mapper.createParser(yaml)),
+				JsonNode.class)) {
+			while (documents.hasNextValue()) {
+				documents.nextValue();
+				fields.add(prefix.fields());
+			}
+		}
+
+		assertEquals(List.of(Map.of("kind", "Service"), Map.of(), Map.of("openapi", "3.1.0")), fields);
+	}
+
+	@Test
+	void leavesTheParserAloneWithoutKeys() {
+		JsonParser parser = JsonMapper.builder().build().createParser("{}");
+
+		assertSame(parser, new ContentPrefix(0).capture(parser));
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.alexmond.yaml.validator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileContentTest {
+
+	private static byte[] readAll(FileContent content) throws IOException {
+		try (InputStream is = content.newStream()) {
+			return is.readAllBytes();
+		}
+	}
+
+	@Test
+	void mapsLargeFilesAndBuffersSmallOnes(@TempDir Path dir) throws IOException {
+		byte[] bytes = "{\"name\": \"app\", \"replicas\": 3}".repeat(100).getBytes(StandardCharsets.UTF_8);
+		Path file = Files.write(dir.resolve("input.json"), bytes);
+		BufferPool pool = new BufferPool(2, 1 << 20);
+
+		try (FileContent mapped = FileContent.open(file, bytes.length, pool);
+				FileContent buffered = FileContent.open(file, bytes.length + 1L, pool)) {
+			assertTrue(mapped.isMapped());
+			assertFalse(buffered.isMapped());
+			assertArrayEquals(bytes, readAll(mapped));
+			assertArrayEquals(bytes, readAll(mapped));
+			assertArrayEquals(bytes, readAll(buffered));
+			assertArrayEquals(bytes, readAll(buffered));
+		}
+	}
+
+	@Test
+	void readsEmptyFiles(@TempDir Path dir) throws IOException {
+		Path file = Files.createFile(dir.resolve("empty.yaml"));
+		BufferPool pool = new BufferPool(2, 1 << 20);
+
+		try (FileContent mapped = FileContent.open(file, 0, pool);
+				FileContent buffered = FileContent.open(file, Long.MAX_VALUE, pool)) {
+			assertEquals(0, readAll(mapped).length);
+			assertEquals(0, readAll(buffered).length);
+		}
+	}
+
+	@Test
+	void reusesPooledBuffers() {
+		BufferPool pool = new BufferPool(1, 1 << 16);
+		byte[] first = pool.acquire(1000);
+		pool.release(first);
+
+		assertSame(first, pool.acquire(2000));
+		byte[] large = pool.acquire(1 << 17);
+		pool.release(large);
+		assertNotSame(large, pool.acquire(1 << 17));
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.config.InputFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatDetectorTest {
+
+	@ParameterizedTest
+	@CsvSource({ "'{\"a\": 1}', JSON", "'  [1, 2]', JSON", "'', JSON", "'--- {}', YAML", "'name: test', YAML",
+			"'# {}', YAML", "'%YAML 1.2', YAML" })
+	void detectsFromLeadingBytes(String content, InputFormat expected) {
+		assertEquals(expected, FormatDetector.detect(content.getBytes(StandardCharsets.UTF_8), InputFormat.AUTO));
+	}
+
+	@Test
+	void skipsUtf8ByteOrderMark() {
+		byte[] content = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '{', '}' };
+		assertEquals(InputFormat.JSON, FormatDetector.detect(content, InputFormat.AUTO));
+	}
+
+	@Test
+	void detectsUtf16Json() {
+		assertEquals(InputFormat.JSON, FormatDetector.detect("{}".getBytes(StandardCharsets.UTF_16), null));
+		assertEquals(InputFormat.JSON, FormatDetector.detect("{}".getBytes(StandardCharsets.UTF_16LE), null));
+		byte[] utf16Le = { (byte) 0xFF, (byte) 0xFE, '[', 0x00, ']', 0x00 };
+		assertEquals(InputFormat.JSON, FormatDetector.detect(utf16Le, InputFormat.AUTO));
+	}
+
+	@Test
+	void treatsByteOrderMarkBytesAsContentPastTheStart() {
+		byte[] invalidLead = { (byte) 0xFF, '{', '}' };
+		byte[] strayMark = { ' ', ' ', (byte) 0xEF, '[', ']' };
+		assertEquals(InputFormat.YAML, FormatDetector.detect(invalidLead, InputFormat.AUTO));
+		assertEquals(InputFormat.YAML, FormatDetector.detect(strayMark, InputFormat.AUTO));
+	}
+
+	@Test
+	void explicitFormatWins() {
+		byte[] json = "{}".getBytes(StandardCharsets.UTF_8);
+		assertEquals(InputFormat.YAML, FormatDetector.detect(json, InputFormat.YAML));
+		assertFalse(FormatDetector.allowsYamlFallback("a.yaml", InputFormat.JSON));
+	}
+
+	@Test
+	void yamlFallbackDependsOnExtension() {
+		assertTrue(FormatDetector.allowsYamlFallback("flow.yaml", InputFormat.AUTO));
+		assertTrue(FormatDetector.allowsYamlFallback("stdin", null));
+		assertFalse(FormatDetector.allowsYamlFallback("data.JSON", InputFormat.AUTO));
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.alexmond.yaml.validator;
+
+import com.networknt.schema.output.OutputUnit;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParserLimitsTest {
+
+	@TempDir
+	Path cacheDir;
+
+	private YamlSchemaValidator newValidator(Consumer<YamlSchemaValidatorConfig> limits) {
+		return TestValidators.validator(this.cacheDir, limits);
+	}
+
+	private static String error(OutputUnit outputUnit) {
+		assertFalse(outputUnit.isValid());
+		return String.valueOf(outputUnit.getErrors().get("error"));
+	}
+
+	@Test
+	void reportsDeepNestingAsFileError(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		Path data = Files.writeString(dir.resolve("deep.json"), "[".repeat(20) + "]".repeat(20));
+		Path shallow = Files.writeString(dir.resolve("shallow.json"), "[[[]]]");
+		YamlSchemaValidator validator = newValidator((config) -> config.setMaxNestingDepth(10));
+
+		assertTrue(error(validator.validate(data.toString(), schema.toString()).get(data.toString()))
+			.contains("nesting depth"));
+		assertTrue(validator.validate(shallow.toString(), schema.toString()).get(shallow.toString()).isValid());
+	}
+
+	@Test
+	void reportsLongStringAsFileError(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		Path data = Files.writeString(dir.resolve("long.json"), "{\"a\": \"" + "x".repeat(200) + "\"}");
+		Path yaml = Files.writeString(dir.resolve("long.yaml"), "a: " + "x".repeat(200) + "\n");
+		YamlSchemaValidator validator = newValidator((config) -> config.setMaxStringLength(100));
+
+		assertTrue(error(validator.validate(data.toString(), schema.toString()).get(data.toString()))
+			.contains("String value length"));
+		assertTrue(error(validator.validate(yaml.toString(), schema.toString()).get(yaml.toString()))
+			.contains("String value length"));
+	}
+
+	@Test
+	void reportsAliasBombAsFileError(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		StringBuilder bomb = new StringBuilder("l0: &l0 [lol, lol, lol, lol, lol, lol, lol, lol, lol]\n");
+		for (int level = 1; level < 10; level++) {
+			bomb.append("l").append(level).append(": &l").append(level).append(" [");
+			bomb.append(String.join(", ", Collections.nCopies(9, "*l" + (level - 1)))).append("]\n");
+		}
+		Path data = Files.writeString(dir.resolve("bomb.yaml"), bomb.toString());
+		Path scalars = Files.writeString(dir.resolve("scalars.yaml"),
+				"name: &name lol\nlist: [" + String.join(", ", Collections.nCopies(100, "*name")) + "]\n");
+		YamlSchemaValidator validator = newValidator((config) -> config.setMaxAliases(20));
+
+		assertTrue(error(validator.validate(data.toString(), schema.toString()).get(data.toString()))
+			.contains("maximum of 20 aliases"));
+		assertTrue(validator.validate(scalars.toString(), schema.toString()).get(scalars.toString()).isValid());
+	}
+
+	@Test
+	void stopsReadingAfterMaxDocuments(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		Path data = Files.writeString(dir.resolve("many.yaml"), "a: 1\n---\na: 2\n---\na: 3\n---\na: 4\n");
+		YamlSchemaValidator validator = newValidator((config) -> config.setMaxDocuments(2));
+
+		Map<String, OutputUnit> results = validator.validate(data.toString(), schema.toString());
+
+		String file = data.toString();
+		assertEquals(List.of(file + "-1", file + "-2", file + "-3"), List.copyOf(results.keySet()));
+		assertTrue(results.get(file + "-2").isValid());
+		assertTrue(error(results.get(file + "-3")).contains("maximum of 2 documents"));
+	}
+
+	@Test
+	void readsAnyNumberOfDocumentsByDefault(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		String stream = "a: 1\n---\n".repeat(10_001) + "a: 1\n";
+		YamlSchemaValidator validator = newValidator((config) -> {
+		});
+
+		Map<String, OutputUnit> results = validator.validate(
+				new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), "stdin", schema.toString());
+
+		assertEquals(10_002, results.size());
+		assertTrue(results.values().stream().allMatch(OutputUnit::isValid));
+	}
+
+	@Test
+	void reportsOversizedDocumentAsFileError(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), "{}");
+		Path yaml = Files.writeString(dir.resolve("big.yaml"), "a: " + "x".repeat(2048) + "\n");
+		byte[] json = ("{\"a\": \"" + "x".repeat(2048) + "\"}").getBytes(StandardCharsets.UTF_8);
+		YamlSchemaValidator validator = newValidator((config) -> config.setMaxDocumentSize(DataSize.ofKilobytes(1)));
+
+		error(validator.validate(yaml.toString(), schema.toString()).get(yaml.toString()));
+		Map<String, OutputUnit> stdin = validator.validate(new ByteArrayInputStream(json), "stdin", schema.toString());
+		assertTrue(error(stdin.get("stdin")).contains("maximum size"));
+	}
+
+	@Test
+	void limitsEachElementOfAStreamedArray(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"),
+				"{\"type\": \"array\", \"items\": {\"type\": \"object\"}}");
+		Path small = Files.writeString(dir.resolve("small.json"),
+				"[" + String.join(",", Collections.nCopies(200, "{\"name\": \"element\"}")) + "]");
+		Path large = Files.writeString(dir.resolve("large.json"),
+				"[{\"a\": 1}, {\"a\": \"" + "x".repeat(2048) + "\"}]");
+		YamlSchemaValidator validator = newValidator((config) -> {
+			config.setStreamArrays(true);
+			config.setMaxDocumentSize(DataSize.ofKilobytes(1));
+		});
+
+		assertTrue(validator.validate(small.toString(), schema.toString()).get(small.toString()).isValid());
+		assertTrue(error(validator.validate(large.toString(), schema.toString()).get(large.toString()))
+			.contains("Array element exceeds the maximum size"));
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.alexmond.yaml.validator;
+
+import com.networknt.schema.output.OutputUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ProjectedReaderTest {
+
+	private static final String SCHEMA = """
+			{
+			  "type": "object",
+			  "required": [ "metadata", "spec" ],
+			  "properties": {
+			    "metadata": { "properties": { "name": { "type": "string", "minLength": 3 } } },
+			    "spec": { "$ref": "#/$defs/spec" }
+			  },
+			  "$defs": {
+			    "spec": {
+			      "type": "object",
+			      "properties": { "replicas": { "type": "integer" } },
+			      "additionalProperties": { "type": [ "string", "object" ] }
+			    }
+			  }
+			}
+			""";
+
+	private static final String OTHER_SCHEMA = """
+			{ "properties": { "data": { "properties": { "size": { "maximum": 10 } } } } }
+			""";
+
+	@TempDir
+	Path cacheDir;
+
+	private YamlSchemaValidator newValidator(boolean projection) {
+		return TestValidators.validator(this.cacheDir, (config) -> config.setProjection(projection));
+	}
+
+	private void assertSameResults(Path data, Path schema) {
+		Map<String, OutputUnit> full = newValidator(false).validate(data.toString(), schema.toString());
+		Map<String, OutputUnit> projected = newValidator(true).validate(data.toString(), schema.toString());
+
+		assertEquals(full.keySet(), projected.keySet());
+		for (Map.Entry<String, OutputUnit> entry : full.entrySet()) {
+			OutputUnit expected = entry.getValue();
+			OutputUnit actual = projected.get(entry.getKey());
+			assertEquals(expected.isValid(), actual.isValid(), entry.getKey());
+			assertEquals(expected.getErrors(), actual.getErrors(), entry.getKey());
+			assertEquals(details(expected), details(actual), entry.getKey());
+		}
+	}
+
+	private static List<String> details(OutputUnit outputUnit) {
+		if (outputUnit.getDetails() == null) {
+			return List.of();
+		}
+		return outputUnit.getDetails()
+			.stream()
+			.map((detail) -> detail.getInstanceLocation() + " " + detail.getEvaluationPath() + " " + detail.getErrors())
+			.toList();
+	}
+
+	@Test
+	void validatesLikeFullParse(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path json = Files.writeString(dir.resolve("data.json"), """
+				{"metadata": {"name": "ab", "labels": {"app": "web"}},
+				 "spec": {"replicas": "two", "template": {"x": [1, 2]}, "image": 3},
+				 "data": {"blob": [{"a": 1}, {"b": [true, null]}]}}
+				""");
+		Path yaml = Files.writeString(dir.resolve("data.yaml"), """
+				metadata: {name: web}
+				spec: {replicas: 2, image: nginx}
+				data: {blob: [1, 2, {c: d}]}
+				---
+				metadata: {labels: {app: web}}
+				data: &anchor {nested: {deep: [x, y]}}
+				copy: *anchor
+				""");
+
+		OutputUnit outputUnit = newValidator(true).validate(json.toString(), schema.toString()).get(json.toString());
+		assertFalse(outputUnit.isValid());
+		assertSameResults(json, schema);
+		assertSameResults(yaml, schema);
+	}
+
+	@Test
+	void readsDocumentsWithOtherSchemaInFull(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Files.writeString(dir.resolve("other.json"), OTHER_SCHEMA);
+		Path yaml = Files.writeString(dir.resolve("data.yaml"), """
+				metadata: {name: web}
+				spec: {replicas: 2}
+				---
+				$schema: other.json
+				data: {size: 20}
+				""");
+
+		assertSameResults(yaml, schema);
+	}
+
+	@Test
+	void reportsBrokenInputLikeFullParse(@TempDir Path dir) throws IOException {
+		Path schema = Files.writeString(dir.resolve("schema.json"), SCHEMA);
+		Path json = Files.writeString(dir.resolve("broken.json"), "{\"metadata\": {\"name\": \"web\"}, \"data\": [");
+		Path yaml = Files.writeString(dir.resolve("broken.yaml"), "metadata: {name: web}\ndata: [1, 2\n");
+
+		assertSameResults(json, schema);
+		assertSameResults(yaml, schema);
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.catalog.ContentDetector;
+import org.alexmond.yaml.validator.catalog.SchemaCatalogLoader;
+import org.alexmond.yaml.validator.catalog.SchemaDetector;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.alexmond.yaml.validator.schema.SchemaBundle;
+import org.alexmond.yaml.validator.schema.SchemaCache;
+import org.alexmond.yaml.validator.schema.SchemaDiskCache;
+import org.alexmond.yaml.validator.schema.SchemaFetcher;
+import org.alexmond.yaml.validator.schema.SchemaLoader;
+import org.alexmond.yaml.validator.schema.SchemaSnapshot;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Builds a {@link YamlSchemaValidator} wired like the application context, for tests and
+ * benchmarks that compare configurations the shared test context cannot hold at once.
+ */
+public final class TestValidators {
+
+	private TestValidators() {
+	}
+
+	/**
+	 * Builds a validator with the test defaults.
+	 * @param cacheDir Directory for the schema cache
+	 * @return the validator
+	 * @see #validator(Path, Consumer)
+	 */
+	public static YamlSchemaValidator validator(Path cacheDir) {
+		return validator(cacheDir, (config) -> {
+		});
+	}
+
+	/**
+	 * Builds a validator with the test defaults: autodetection and warm start off, and
+	 * schemas cached in the given directory.
+	 * @param cacheDir Directory for the schema cache
+	 * @param settings Applies the settings under test to the configuration
+	 * @return the validator
+	 */
+	public static YamlSchemaValidator validator(Path cacheDir, Consumer<YamlSchemaValidatorConfig> settings) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(cacheDir.toString());
+		config.setAutoDetect(false);
+		config.setWarmStart(false);
+		settings.accept(config);
+		return validator(config, new ValidationExecutor(config));
+	}
+
+	/**
+	 * Builds a validator for a configuration as is.
+	 * @param config The configuration
+	 * @param validationExecutor The executor, shared with a runner built around the
+	 * validator
+	 * @return the validator
+	 */
+	public static YamlSchemaValidator validator(YamlSchemaValidatorConfig config,
+			ValidationExecutor validationExecutor) {
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaSnapshot snapshot = new SchemaSnapshot(config, diskCache);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		SchemaDetector schemaDetector = new SchemaDetector(config,
+				new SchemaCatalogLoader(config, schemaFetcher, snapshot, validationExecutor),
+				new ContentDetector(config));
+		SchemaCache schemaCache = new SchemaCache(new SchemaLoader(schemaFetcher), validationExecutor, snapshot);
+		return new YamlSchemaValidator(config, schemaDetector, schemaCache, validationExecutor);
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.alexmond.yaml.validator;
+
+import com.networknt.schema.OutputFormat;
+import com.networknt.schema.Schema;
+import com.networknt.schema.SchemaLocation;
+import com.networknt.schema.SchemaRegistry;
+import com.networknt.schema.SpecificationVersion;
+import com.networknt.schema.output.OutputUnit;
+import org.alexmond.yaml.validator.output.FilesOutput;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.yaml.YAMLMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TwoPhaseValidationTest {
+
+	private static final String TEST_DATA_DIR = "src/test/resources/testdata/";
+
+	private static final List<String> FIXTURES = List.of("valid.yaml", "valid.json", "multi3valid.yaml",
+			"invalid.yaml", "invalid.json", "multi3invalid.yaml");
+
+	@Test
+	void reportsMatchListOnlyValidation() {
+		File schemaFile = new File(TEST_DATA_DIR + "sample-schema.json");
+		SchemaRegistry registry = SchemaRegistry.withDefaultDialect(SpecificationVersion.DRAFT_2020_12);
+		Schema schema = registry.getSchema(SchemaLocation.of(schemaFile.toURI().toString()),
+				JsonMapper.builder().build().readTree(schemaFile));
+		schema.initializeValidators();
+
+		FilesOutput listOnly = validateFixtures((node) -> schema.validate(node, OutputFormat.LIST));
+		FilesOutput twoPhase = validateFixtures((node) -> YamlSchemaValidator.validateTwoPhase(schema, node));
+
+		// The fixtures hold both outcomes, so both phases are exercised
+		assertFalse(twoPhase.isValid());
+		assertTrue(twoPhase.getFiles().values().stream().anyMatch(OutputUnit::isValid));
+		assertEquals(listOnly.toColoredString(false), twoPhase.toColoredString(false));
+		assertEquals(listOnly.toJsonString(), twoPhase.toJsonString());
+		assertEquals(listOnly.toYamlString(), twoPhase.toYamlString());
+		assertEquals(listOnly.toJunitString(), twoPhase.toJunitString());
+		assertEquals(listOnly.toLlmString(true), twoPhase.toLlmString(true));
+		assertEquals(listOnly.toLlmString(false), twoPhase.toLlmString(false));
+	}
+
+	private static FilesOutput validateFixtures(Function<JsonNode, OutputUnit> validation) {
+		YAMLMapper yamlMapper = YAMLMapper.builder().build();
+		Map<String, OutputUnit> files = new LinkedHashMap<>();
+		for (String fixture : FIXTURES) {
+			File file = new File(TEST_DATA_DIR + fixture);
+			try (MappingIterator<JsonNode> documents = yamlMapper.readValues(yamlMapper.createParser(file),
+					JsonNode.class)) {
+				int count = 0;
+				while (documents.hasNextValue()) {
+					files.put(TEST_DATA_DIR + fixture + "-" + ++count, validation.apply(documents.nextValue()));
+				}
+			}
+		}
+		return new FilesOutput(files);
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.alexmond.yaml.validator;
+
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidationExecutorTest {
+
+	private static ValidationExecutor newExecutor(String parallelism) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setParallelism(parallelism);
+		return new ValidationExecutor(config);
+	}
+
+	@Test
+	void orderedTasksKeepSubmissionOrderWithBoundedWindow() {
+		ValidationExecutor executor = newExecutor("4");
+		List<Integer> results = new ArrayList<>();
+		AtomicInteger held = new AtomicInteger();
+		AtomicInteger maxHeld = new AtomicInteger();
+		ValidationExecutor.OrderedTasks<Integer> tasks = executor.ordered(3, (result) -> {
+			held.decrementAndGet();
+			results.add(result);
+		});
+
+		for (int i = 0; i < 50; i++) {
+			int index = i;
+			maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+			tasks.submit(() -> {
+				Thread.sleep((index * 7) % 5);
+				return index;
+			});
+		}
+		tasks.finish();
+		executor.destroy();
+
+		assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), results);
+		assertTrue(maxHeld.get() <= 3, "held " + maxHeld.get());
+	}
+
+	@Test
+	void orderedTasksRunOnCallerWithoutParallelism() {
+		ValidationExecutor executor = newExecutor("1");
+		Thread caller = Thread.currentThread();
+		List<Boolean> onCaller = new ArrayList<>();
+		ValidationExecutor.OrderedTasks<Boolean> tasks = executor.ordered(16, onCaller::add);
+
+		for (int i = 0; i < 3; i++) {
+			tasks.submit(() -> Thread.currentThread() == caller);
+			assertEquals(i + 1, onCaller.size());
+		}
+		tasks.finish();
+
+		assertEquals(List.of(true, true, true), onCaller);
+	}
+
+}
@@ -6,12 +6,15 @@ import com.networknt.schema.output.OutputUnit;
 import org.alexmond.yaml.validator.config.ReportType;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
 import org.alexmond.yaml.validator.output.FilesOutput;
+import org.alexmond.yaml.validator.schema.SchemaBundleWriter;
 import org.alexmond.yaml.validator.util.XmlCompareUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -19,10 +22,14 @@ import org.springframework.core.env.Environment;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -30,7 +37,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -71,7 +80,8 @@ class YamlSchemaValidatorRunnerTest {
 		YamlSchemaValidator yamlSchemaValidator = mock(YamlSchemaValidator.class);
 		Environment environment = mock(Environment.class);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.containsOption("help")).thenReturn(true);
@@ -96,21 +106,22 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.TEXT);
 		when(config.isColor()).thenReturn(false);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(Collections.emptyList());
 
 		OutputUnit outputUnit = new OutputUnit();
 		outputUnit.setValid(true);
-		when(yamlSchemaValidator.validate(any(), eq("stdin"), any()))
+		when(yamlSchemaValidator.validate(any(InputStream.class), eq("stdin"), any()))
 			.thenReturn(Collections.singletonMap("stdin", outputUnit));
 
 		FilesOutput result = runner.validate(args);
 
 		assertNotNull(result, "Expected result not to be null when using stdin");
 		assertTrue(result.isValid(), "Expected result to be valid from stdin");
-		verify(yamlSchemaValidator).validate(any(), eq("stdin"), any());
+		verify(yamlSchemaValidator).validate(any(InputStream.class), eq("stdin"), any());
 	}
 
 	/**
@@ -126,7 +137,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.TEXT);
 		when(config.isColor()).thenReturn(false);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(Collections.emptyList());
@@ -149,7 +161,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.isSchemaOverride()).thenReturn(true);
 		when(config.getSchema()).thenReturn(null);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of("file1.yaml"));
@@ -174,7 +187,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.JSON);
 		when(config.isColor()).thenReturn(false);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of("testdata/valid.yaml"));
@@ -218,7 +232,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.valueOf(reportType));
 		when(config.getReportFileName()).thenReturn(reportFile);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidatorReal, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidatorReal, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of(testDataDir + fileName));
@@ -254,7 +269,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.valueOf(reportType));
 		when(config.getReportFileName()).thenReturn(reportFile);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidatorReal, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidatorReal, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of("none.yaml"));
@@ -272,6 +288,138 @@ class YamlSchemaValidatorRunnerTest {
 
 	}
 
+	/**
+	 * Test to verify that parallel validation keeps the input file order and the overall
+	 * verdict.
+	 */
+	@Test
+	void testParallelValidationKeepsFileOrder() {
+		YamlSchemaValidatorConfig config = mock(YamlSchemaValidatorConfig.class);
+		Environment environment = mock(Environment.class);
+
+		when(config.getReportType()).thenReturn(ReportType.JSON);
+		when(config.getReportFileName()).thenReturn("parallel.json");
+		when(config.getParallelism()).thenReturn("4");
+
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidatorReal, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
+
+		List<String> files = List.of(testDataDir + "valid.yaml", testDataDir + "invalid.yaml",
+				testDataDir + "valid.json", testDataDir + "multi3invalid.yaml");
+		ApplicationArguments args = mock(ApplicationArguments.class);
+		when(args.getNonOptionArgs()).thenReturn(files);
+		FilesOutput result = runner.validate(args);
+
+		assertNotNull(result, "Expected result not to be null with valid files");
+		assertFalse(result.isValid(), "Expected result to be not valid when one file is invalid");
+		assertEquals(List.of(testDataDir + "valid.yaml", testDataDir + "invalid.yaml", testDataDir + "valid.json",
+				testDataDir + "multi3invalid.yaml-1", testDataDir + "multi3invalid.yaml-2",
+				testDataDir + "multi3invalid.yaml-3"), List.copyOf(result.getFiles().keySet()));
+	}
+
+	/**
+	 * Test to verify that validating files and documents concurrently produces the same
+	 * TEXT and JSON reports as validating them one at a time.
+	 */
+	@Test
+	void testParallelReportsMatchSequentialReports(@TempDir Path cacheDir) {
+		List<String> files = List.of(testDataDir + "valid.yaml", testDataDir + "invalid.yaml",
+				testDataDir + "valid.json", testDataDir + "multi3invalid.yaml", testDataDir + "multi3valid.yaml");
+
+		FilesOutput sequential = validateWithParallelism("1", files, cacheDir);
+		FilesOutput parallel = validateWithParallelism("4", files, cacheDir);
+
+		assertEquals(sequential.toColoredString(false), parallel.toColoredString(false));
+		assertEquals(sequential.toJsonString(), parallel.toJsonString());
+	}
+
+	private FilesOutput validateWithParallelism(String parallelism, List<String> files, Path cacheDir) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setParallelism(parallelism);
+		config.setAutoDetect(false);
+		config.setWarmStart(false);
+		config.setCacheDir(cacheDir.toString());
+		config.setColor(false);
+		ValidationExecutor validationExecutor = new ValidationExecutor(config);
+		YamlSchemaValidator validator = TestValidators.validator(config, validationExecutor);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, validator, mock(Environment.class),
+				validationExecutor, mock(SchemaBundleWriter.class));
+
+		ApplicationArguments args = mock(ApplicationArguments.class);
+		when(args.getNonOptionArgs()).thenReturn(files);
+		return runner.validate(args);
+	}
+
+	/**
+	 * Test to verify that files whose remote schema is still being prefetched are
+	 * validated after files with available schemas, while the report keeps input order.
+	 */
+	@Test
+	void testPrefetchValidatesReadyFilesFirst() {
+		YamlSchemaValidatorConfig config = mock(YamlSchemaValidatorConfig.class);
+		YamlSchemaValidator yamlSchemaValidator = mock(YamlSchemaValidator.class);
+		Environment environment = mock(Environment.class);
+
+		when(config.getReportType()).thenReturn(ReportType.JSON);
+		when(config.getReportFileName()).thenReturn("prefetch.json");
+		when(config.isPrefetch()).thenReturn(true);
+
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
+
+		String remote = "https://example.com/remote-schema.json";
+		when(yamlSchemaValidator.declaredSchemas("remote.yaml", null))
+			.thenReturn(new YamlSchemaValidator.SchemaReferences(Set.of(remote), false));
+		when(yamlSchemaValidator.declaredSchemas("local.yaml", null))
+			.thenReturn(new YamlSchemaValidator.SchemaReferences(Set.of("local-schema.json"), false));
+		when(yamlSchemaValidator.isSchemaAvailable(remote)).thenReturn(false);
+		when(yamlSchemaValidator.isSchemaAvailable("local-schema.json")).thenReturn(true);
+		OutputUnit outputUnit = new OutputUnit();
+		outputUnit.setValid(true);
+		when(yamlSchemaValidator.validate("remote.yaml", null))
+			.thenReturn(Collections.singletonMap("remote.yaml", outputUnit));
+		when(yamlSchemaValidator.validate("local.yaml", null))
+			.thenReturn(Collections.singletonMap("local.yaml", outputUnit));
+
+		ApplicationArguments args = mock(ApplicationArguments.class);
+		when(args.getNonOptionArgs()).thenReturn(List.of("remote.yaml", "local.yaml"));
+		FilesOutput result = runner.validate(args);
+
+		InOrder validationOrder = inOrder(yamlSchemaValidator);
+		validationOrder.verify(yamlSchemaValidator).validate("local.yaml", null);
+		validationOrder.verify(yamlSchemaValidator).validate("remote.yaml", null);
+		assertEquals(List.of("remote.yaml", "local.yaml"), List.copyOf(result.getFiles().keySet()));
+	}
+
+	/**
+	 * Test to verify that, by default, a run with a local schema validates each file
+	 * without scanning it for schema references first.
+	 */
+	@Test
+	void testLocalSchemaRunDoesNotPreScan() {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setSchema(testDataDir + "sample-schema.json");
+		config.setColor(false);
+		YamlSchemaValidator yamlSchemaValidator = mock(YamlSchemaValidator.class);
+		Environment environment = mock(Environment.class);
+
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
+
+		OutputUnit outputUnit = new OutputUnit();
+		outputUnit.setValid(true);
+		when(yamlSchemaValidator.validate(testDataDir + "valid.yaml", config.getSchema()))
+			.thenReturn(Collections.singletonMap(testDataDir + "valid.yaml", outputUnit));
+
+		ApplicationArguments args = mock(ApplicationArguments.class);
+		when(args.getNonOptionArgs()).thenReturn(List.of(testDataDir + "valid.yaml"));
+		FilesOutput result = runner.validate(args);
+
+		assertTrue(result.isValid());
+		verify(yamlSchemaValidator, never()).declaredSchemas(any(), any());
+		verify(yamlSchemaValidator, never()).schemaReferences(any(), any());
+	}
+
 	/**
 	 * Test to verify that validate() method processes invalid YAML files and returns
 	 * invalid output.
@@ -286,7 +434,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.JSON);
 		when(config.isColor()).thenReturn(false);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of("testdata/invalid.yaml"));
@@ -317,7 +466,8 @@ class YamlSchemaValidatorRunnerTest {
 		when(config.getReportType()).thenReturn(ReportType.JSON);
 		when(config.isColor()).thenReturn(false);
 
-		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment);
+		YamlSchemaValidatorRunner runner = new YamlSchemaValidatorRunner(config, yamlSchemaValidator, environment,
+				new ValidationExecutor(config), mock(SchemaBundleWriter.class));
 
 		ApplicationArguments args = mock(ApplicationArguments.class);
 		when(args.getNonOptionArgs()).thenReturn(List.of("error-prone.yaml"));
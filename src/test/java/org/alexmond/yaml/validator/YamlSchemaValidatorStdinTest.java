@@ -8,8 +8,13 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -35,4 +40,62 @@ public class YamlSchemaValidatorStdinTest {
 		assertTrue(results.get("stdin").isValid());
 	}
 
+	@Test
+	void shouldStreamStdinDocumentsInOrder() {
+		String yamlContent = """
+				name: "first"
+				---
+				name: "second"
+				---
+				name: "third"
+				""";
+		String schemaPath = "src/test/resources/testdata/sample-schema.json";
+
+		ByteArrayInputStream bais = new ByteArrayInputStream(yamlContent.getBytes(StandardCharsets.UTF_8));
+
+		List<String> keys = new ArrayList<>();
+		yamlSchemaValidator.validate(bais, "stdin", schemaPath, (key, output) -> keys.add(key));
+
+		assertEquals(List.of("stdin-1", "stdin-2", "stdin-3"), keys);
+	}
+
+	@Test
+	void shouldReportParseErrorAfterEarlierDocuments() {
+		String yamlContent = """
+				name: "first"
+				---
+				name: "second"
+				---
+				name: [broken
+				""";
+		String schemaPath = "src/test/resources/testdata/sample-schema.json";
+
+		ByteArrayInputStream bais = new ByteArrayInputStream(yamlContent.getBytes(StandardCharsets.UTF_8));
+
+		Map<String, OutputUnit> results = yamlSchemaValidator.validate(bais, "stdin", schemaPath);
+
+		assertEquals(List.of("stdin-1", "stdin-2", "stdin-3"), List.copyOf(results.keySet()));
+		assertTrue(results.get("stdin-1").isValid());
+		assertTrue(results.get("stdin-2").isValid());
+		assertFalse(results.get("stdin-3").isValid());
+		assertNotNull(results.get("stdin-3").getErrors().get("error"));
+	}
+
+	@Test
+	void shouldReportParseErrorInFirstDocumentUnderSourceName() {
+		String yamlContent = """
+				name: [broken
+				---
+				name: "second"
+				""";
+		String schemaPath = "src/test/resources/testdata/sample-schema.json";
+
+		ByteArrayInputStream bais = new ByteArrayInputStream(yamlContent.getBytes(StandardCharsets.UTF_8));
+
+		Map<String, OutputUnit> results = yamlSchemaValidator.validate(bais, "stdin", schemaPath);
+
+		assertEquals(List.of("stdin"), List.copyOf(results.keySet()));
+		assertFalse(results.get("stdin").isValid());
+	}
+
 }
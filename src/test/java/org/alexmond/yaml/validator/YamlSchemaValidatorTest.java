@@ -2,6 +2,8 @@ package org.alexmond.yaml.validator;
 
 import com.networknt.schema.output.OutputUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -10,7 +12,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.stream.Stream;
 
@@ -24,6 +28,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @Slf4j
 public class YamlSchemaValidatorTest {
 
+	private static final String DEPLOYMENT_SCHEMA = "https://raw.githubusercontent.com/yannh/kubernetes-json-schema/"
+			+ "master/master-standalone-strict/deployment-apps-v1.json";
+
 	private String reportsDir = "src/test/resources/testreport/";
 
 	private String testDataDir = "src/test/resources/testdata/";
@@ -92,4 +99,42 @@ public class YamlSchemaValidatorTest {
 		}
 	}
 
+	@ParameterizedTest
+	@CsvSource(delimiter = ':', value = { "valid.yaml::src/test/resources/testdata/./sample-schema.json",
+			"valid.json::src/test/resources/testdata/sample-schema.json",
+			"validNoSchema.yaml:param.json:param.json", "missingfile.yaml:param.json:param.json" })
+	void shouldListSchemaReferences(String yamlPath, String schemaPath, String expected) {
+		Set<String> references = yamlSchemaValidator.schemaReferences(testDataDir + yamlPath, schemaPath);
+		assertEquals(Set.of(expected), references);
+	}
+
+	@Test
+	void shouldListSchemaDetectedFromContent(@TempDir Path cacheDir) {
+		YamlSchemaValidator validator = contentDetectingValidator(cacheDir);
+
+		Set<String> references = validator.schemaReferences(testDataDir + "deployment.yaml", null);
+
+		assertEquals(Set.of(DEPLOYMENT_SCHEMA), references);
+	}
+
+	@Test
+	void shouldValidateAgainstSchemaDetectedFromContent(@TempDir Path cacheDir) {
+		YamlSchemaValidator validator = contentDetectingValidator(cacheDir);
+
+		OutputUnit outputUnit = validator.validate(testDataDir + "deployment.yaml", null)
+			.get(testDataDir + "deployment.yaml");
+
+		// Offline with an empty cache, so the detected schema shows in the fetch error
+		assertFalse(outputUnit.isValid());
+		assertTrue(String.valueOf(outputUnit.getErrors()).contains(DEPLOYMENT_SCHEMA), outputUnit::toString);
+	}
+
+	private static YamlSchemaValidator contentDetectingValidator(Path cacheDir) {
+		return TestValidators.validator(cacheDir, (config) -> {
+			config.setAutoDetect(true);
+			config.setContentDetect(true);
+			config.setOffline(true);
+		});
+	}
+
 }
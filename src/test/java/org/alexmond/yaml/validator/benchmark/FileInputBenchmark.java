@@ -0,0 +1,102 @@
+package org.alexmond.yaml.validator.benchmark;
+
+import org.alexmond.yaml.validator.BufferPool;
+import org.alexmond.yaml.validator.FileContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of reading an input file for parsing, by file size: memory-mapped
+ * {@link FileContent}, {@link FileContent} read into a pooled buffer, and the previous
+ * path that copied the whole file onto the heap with {@code readAllBytes()} before
+ * parsing. Run with {@code -prof gc} to see the allocation each one costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileInputBenchmark {
+
+	@Param({ "64", "1024", "16384", "131072" })
+	public int sizeKb;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	private final BufferPool pool = new BufferPool(4, 256 * 1024 * 1024);
+
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.file = Files.createTempFile("file-input-benchmark", ".json");
+		long target = this.sizeKb * 1024L;
+		try (Writer writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8)) {
+			writer.write('[');
+			long written = 1;
+			for (int i = 0; written < target; i++) {
+				String item = ((i > 0) ? "," : "") + "{\"name\": \"service-" + i
+						+ "\", \"replicas\": 3, \"labels\": {\"app\": \"web\", \"tier\": \"backend\"}}";
+				writer.write(item);
+				written += item.length();
+			}
+			writer.write(']');
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+
+	@Benchmark
+	public JsonNode mapped() throws IOException {
+		try (FileContent content = FileContent.open(this.file, 0, this.pool); InputStream is = content.newStream()) {
+			return this.jsonMapper.readTree(is);
+		}
+	}
+
+	@Benchmark
+	public JsonNode pooled() throws IOException {
+		try (FileContent content = FileContent.open(this.file, Long.MAX_VALUE, this.pool);
+				InputStream is = content.newStream()) {
+			return this.jsonMapper.readTree(is);
+		}
+	}
+
+	@Benchmark
+	public JsonNode heapCopy() throws IOException {
+		try (InputStream is = Files.newInputStream(this.file)) {
+			return this.jsonMapper.readTree(is.readAllBytes());
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FileInputBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
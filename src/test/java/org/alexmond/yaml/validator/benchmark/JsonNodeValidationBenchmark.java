@@ -0,0 +1,112 @@
+package org.alexmond.yaml.validator.benchmark;
+
+import com.networknt.schema.InputFormat;
+import com.networknt.schema.OutputFormat;
+import com.networknt.schema.Schema;
+import com.networknt.schema.SchemaLocation;
+import com.networknt.schema.SchemaRegistry;
+import com.networknt.schema.SpecificationVersion;
+import com.networknt.schema.output.OutputUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating an already-parsed document tree with the previous approach of
+ * re-serializing it to a String and letting the validator parse it again. Run with the GC
+ * profiler ({@code main}) to see allocated bytes per operation next to the latency;
+ * dividing by {@code sizeMb} gives the cost per MB of input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonNodeValidationBenchmark {
+
+	private static final String SCHEMA = """
+			{
+			  "type": "object",
+			  "properties": {
+			    "records": {
+			      "type": "array",
+			      "items": {
+			        "type": "object",
+			        "properties": {
+			          "id": { "type": "integer" },
+			          "name": { "type": "string" },
+			          "enabled": { "type": "boolean" }
+			        },
+			        "required": [ "id", "name" ]
+			      }
+			    }
+			  }
+			}
+			""";
+
+	private static final int BYTES_PER_MB = 1024 * 1024;
+
+	@Param({ "1", "8" })
+	public int sizeMb;
+
+	private Schema schema;
+
+	private JsonNode document;
+
+	@Setup
+	public void setUp() {
+		JsonMapper jsonMapper = JsonMapper.builder().build();
+		SchemaRegistry registry = SchemaRegistry.withDefaultDialect(SpecificationVersion.DRAFT_2020_12);
+		this.schema = registry.getSchema(SchemaLocation.of("urn:benchmark"), jsonMapper.readTree(SCHEMA));
+		this.schema.initializeValidators();
+
+		ObjectNode root = jsonMapper.createObjectNode();
+		ArrayNode records = root.putArray("records");
+		int id = 0;
+		while (root.toString().length() < this.sizeMb * BYTES_PER_MB) {
+			for (int i = 0; i < 1000; i++, id++) {
+				ObjectNode record = records.addObject();
+				record.put("id", id);
+				record.put("name", "record-" + id);
+				record.put("enabled", id % 2 == 0);
+			}
+		}
+		this.document = root;
+	}
+
+	@Benchmark
+	public OutputUnit reserializedString() {
+		return this.schema.validate(this.document.toString(), InputFormat.JSON, OutputFormat.LIST);
+	}
+
+	@Benchmark
+	public OutputUnit jsonNode() {
+		return this.schema.validate(this.document, OutputFormat.LIST);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JsonNodeValidationBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.alexmond.yaml.validator.benchmark;
+
+import com.networknt.schema.output.OutputUnit;
+import org.alexmond.yaml.validator.TestValidators;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.YamlSchemaValidator;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating a document against a sparse schema, one that looks at a couple of
+ * fields next to a large unconstrained {@code data} section, with the whole document
+ * built and with only the parts the schema can look at built. Run with the GC profiler
+ * ({@code main}) to see the allocation the skipped subtrees no longer cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+	private static final String SCHEMA = """
+			{
+			  "type": "object",
+			  "required": [ "metadata", "spec" ],
+			  "properties": {
+			    "metadata": {
+			      "type": "object",
+			      "properties": { "name": { "type": "string", "pattern": "^[a-z0-9-]+$" } },
+			      "required": [ "name" ]
+			    },
+			    "spec": {
+			      "type": "object",
+			      "properties": { "replicas": { "type": "integer", "minimum": 1 } }
+			    }
+			  }
+			}
+			""";
+
+	@Param({ "1", "8" })
+	public int sizeMb;
+
+	@Param({ "json", "yaml" })
+	public String format;
+
+	private Path dir;
+
+	private String schemaPath;
+
+	private String filePath;
+
+	private YamlSchemaValidator full;
+
+	private YamlSchemaValidator projected;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.dir = Files.createTempDirectory("projection-benchmark");
+		this.schemaPath = Files.writeString(this.dir.resolve("schema.json"), SCHEMA).toString();
+		Path file = this.dir.resolve("data." + this.format);
+		long target = this.sizeMb * 1024L * 1024L;
+		boolean json = "json".equals(this.format);
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(json ? "{\"metadata\": {\"name\": \"web\"}, \"spec\": {\"replicas\": 3}, \"data\": ["
+					: "metadata: {name: web}\nspec: {replicas: 3}\ndata:\n");
+			long written = 0;
+			for (int i = 0; written < target; i++) {
+				String item = json
+						? ((i > 0) ? "," : "") + "{\"id\": " + i + ", \"name\": \"record-" + i
+								+ "\", \"tags\": [\"a\", \"b\"], \"attributes\": {\"enabled\": true, \"weight\": 1.5}}"
+						: "  - {id: " + i + ", name: record-" + i
+								+ ", tags: [a, b], attributes: {enabled: true, weight: 1.5}}\n";
+				writer.write(item);
+				written += item.length();
+			}
+			writer.write(json ? "]}" : "");
+		}
+		this.filePath = file.toString();
+		this.full = newValidator(false);
+		this.projected = newValidator(true);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		for (String name : new String[] { "schema.json", "data." + this.format }) {
+			Files.deleteIfExists(this.dir.resolve(name));
+		}
+		Files.deleteIfExists(this.dir);
+	}
+
+	private static YamlSchemaValidator newValidator(boolean projection) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setAutoDetect(false);
+		config.setWarmStart(false);
+		config.setProjection(projection);
+		return TestValidators.validator(config, new ValidationExecutor(config));
+	}
+
+	@Benchmark
+	public Map<String, OutputUnit> fullParse() {
+		return this.full.validate(this.filePath, this.schemaPath);
+	}
+
+	@Benchmark
+	public Map<String, OutputUnit> projectedParse() {
+		return this.projected.validate(this.filePath, this.schemaPath);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ProjectionBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+	}
+
+}
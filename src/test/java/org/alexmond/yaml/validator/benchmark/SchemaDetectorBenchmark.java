@@ -0,0 +1,111 @@
+package org.alexmond.yaml.validator.benchmark;
+
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.catalog.CatalogEntry;
+import org.alexmond.yaml.validator.catalog.ContentDetector;
+import org.alexmond.yaml.validator.catalog.GlobPattern;
+import org.alexmond.yaml.validator.catalog.SchemaCatalog;
+import org.alexmond.yaml.validator.catalog.SchemaCatalogLoader;
+import org.alexmond.yaml.validator.catalog.SchemaDetector;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.alexmond.yaml.validator.schema.SchemaBundle;
+import org.alexmond.yaml.validator.schema.SchemaDiskCache;
+import org.alexmond.yaml.validator.schema.SchemaFetcher;
+import org.alexmond.yaml.validator.schema.SchemaSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures path-based schema detection against the bundled catalog: the indexed
+ * {@link SchemaDetector} next to the previous linear scan, which tries every compiled
+ * pattern for every file. Each operation detects a batch of paths, one per catalog
+ * pattern plus as many that match nothing, as in a repository where most files have no
+ * catalog schema.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaDetectorBenchmark {
+
+	private SchemaDetector detector;
+
+	private List<Map.Entry<GlobPattern, String>> globs;
+
+	private List<String> paths;
+
+	@Setup
+	public void setUp() {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCatalogUrl("");
+		config.setWarmStart(false);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		SchemaCatalogLoader catalogLoader = new SchemaCatalogLoader(config, schemaFetcher,
+				new SchemaSnapshot(config, diskCache), new ValidationExecutor(config));
+		this.detector = new SchemaDetector(config, catalogLoader, new ContentDetector(config));
+
+		SchemaCatalog catalog = catalogLoader.load();
+		this.globs = new ArrayList<>();
+		this.paths = new ArrayList<>();
+		for (CatalogEntry entry : catalog.getSchemas()) {
+			if (entry.getUrl() == null || entry.getFileMatch() == null) {
+				continue;
+			}
+			for (String glob : entry.getFileMatch()) {
+				this.globs.add(Map.entry(GlobPattern.compile(glob), entry.getUrl()));
+				String example = glob.replace("**/", "src/").replace("**", "src").replace('*', 'x').replace('?', 'q');
+				this.paths.add("repo/" + example);
+				this.paths.add("repo/src/main/resources/file-" + this.paths.size() + ".txt");
+			}
+		}
+		// Compile the index outside the measurement
+		this.detector.detect("warmup.yml");
+	}
+
+	@Benchmark
+	public void indexed(Blackhole blackhole) {
+		for (String path : this.paths) {
+			blackhole.consume(this.detector.detect(path));
+		}
+	}
+
+	@Benchmark
+	public void linearScan(Blackhole blackhole) {
+		for (String path : this.paths) {
+			String bestUrl = null;
+			int bestSpecificity = -1;
+			for (Map.Entry<GlobPattern, String> glob : this.globs) {
+				if (glob.getKey().specificity() > bestSpecificity && glob.getKey().matches(path)) {
+					bestSpecificity = glob.getKey().specificity();
+					bestUrl = glob.getValue();
+				}
+			}
+			blackhole.consume(bestUrl);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SchemaDetectorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,115 @@
+package org.alexmond.yaml.validator.benchmark;
+
+import com.networknt.schema.OutputFormat;
+import com.networknt.schema.Schema;
+import com.networknt.schema.SchemaLocation;
+import com.networknt.schema.SchemaRegistry;
+import com.networknt.schema.SpecificationVersion;
+import com.networknt.schema.output.OutputUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating a corpus with {@code LIST} output for every document against the
+ * two-phase approach (fail-fast boolean pass, {@code LIST} only for failures) on corpora
+ * where most documents are valid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TwoPhaseValidationBenchmark {
+
+	private static final String SCHEMA = """
+			{
+			  "type": "object",
+			  "properties": {
+			    "name": { "type": "string", "minLength": 1 },
+			    "replicas": { "type": "integer", "minimum": 0 },
+			    "enabled": { "type": "boolean" },
+			    "labels": { "type": "object", "additionalProperties": { "type": "string" } }
+			  },
+			  "required": [ "name", "replicas" ]
+			}
+			""";
+
+	private static final int DOCUMENTS = 1000;
+
+	@Param({ "100", "99", "90" })
+	public int validPercent;
+
+	private Schema schema;
+
+	private List<JsonNode> documents;
+
+	@Setup
+	public void setUp() {
+		JsonMapper jsonMapper = JsonMapper.builder().build();
+		SchemaRegistry registry = SchemaRegistry.withDefaultDialect(SpecificationVersion.DRAFT_2020_12);
+		this.schema = registry.getSchema(SchemaLocation.of("urn:benchmark"), jsonMapper.readTree(SCHEMA));
+		this.schema.initializeValidators();
+
+		this.documents = new ArrayList<>(DOCUMENTS);
+		for (int i = 0; i < DOCUMENTS; i++) {
+			ObjectNode document = jsonMapper.createObjectNode();
+			document.put("name", "service-" + i);
+			document.put("enabled", true);
+			document.putObject("labels").put("app", "service-" + i).put("tier", "backend");
+			if (i % 100 < this.validPercent) {
+				document.put("replicas", i % 5);
+			}
+			else {
+				document.put("replicas", "many");
+			}
+			this.documents.add(document);
+		}
+	}
+
+	@Benchmark
+	public void listOnly(Blackhole blackhole) {
+		for (JsonNode document : this.documents) {
+			blackhole.consume(this.schema.validate(document, OutputFormat.LIST));
+		}
+	}
+
+	@Benchmark
+	public void twoPhase(Blackhole blackhole) {
+		for (JsonNode document : this.documents) {
+			if (Boolean.TRUE.equals(this.schema.validate(document, OutputFormat.BOOLEAN))) {
+				OutputUnit outputUnit = new OutputUnit();
+				outputUnit.setValid(true);
+				blackhole.consume(outputUnit);
+			}
+			else {
+				blackhole.consume(this.schema.validate(document, OutputFormat.LIST));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TwoPhaseValidationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
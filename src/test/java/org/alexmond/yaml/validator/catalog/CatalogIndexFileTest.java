@@ -0,0 +1,75 @@
+package org.alexmond.yaml.validator.catalog;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogIndexFileTest {
+
+	private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+
+	@Test
+	void streamsOnlyUrlAndFileMatch() {
+		byte[] json = ("{\"$schema\": \"x\", \"version\": 1, \"schemas\": [{\"name\": \"Chart\","
+				+ " \"description\": \"Helm\", \"fileMatch\": [\"Chart.yaml\", 7], \"versions\": {\"1\": \"u\"},"
+				+ " \"url\": \"https://example.com/chart.json\"}, \"junk\", {\"name\": \"no patterns\"}]}")
+			.getBytes(StandardCharsets.UTF_8);
+
+		List<CatalogEntry> entries = CatalogIndexFile.parseCatalog(JSON_MAPPER, json).getSchemas();
+
+		assertEquals(2, entries.size());
+		assertEquals("https://example.com/chart.json", entries.get(0).getUrl());
+		assertEquals(List.of("Chart.yaml"), entries.get(0).getFileMatch());
+		assertNull(entries.get(0).getName());
+		assertNull(entries.get(1).getUrl());
+	}
+
+	@Test
+	void indexOfBundledCatalogMatchesLikeTheJson() throws IOException {
+		SchemaCatalog catalog;
+		try (InputStream is = getClass().getResourceAsStream("/schema-catalog.json")) {
+			catalog = CatalogIndexFile.parseCatalog(JSON_MAPPER, is.readAllBytes());
+		}
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		CatalogIndexFile.write(catalog, index);
+
+		CatalogIndexFile.Compiled fromIndex = CatalogIndexFile.read(new ByteArrayInputStream(index.toByteArray()));
+		CatalogIndexFile.Compiled fromJson = CatalogIndexFile.compile(catalog);
+
+		assertEquals(fromJson.patterns().size(), fromIndex.patterns().size());
+		for (int i = 0; i < fromJson.patterns().size(); i++) {
+			Map.Entry<GlobPattern, String> expected = fromJson.patterns().get(i);
+			Map.Entry<GlobPattern, String> actual = fromIndex.patterns().get(i);
+			assertEquals(expected.getValue(), actual.getValue());
+			assertEquals(expected.getKey().glob(), actual.getKey().glob());
+			assertEquals(expected.getKey().specificity(), actual.getKey().specificity());
+			assertEquals(expected.getKey().literalSuffix(), actual.getKey().literalSuffix());
+			assertEquals(expected.getKey().isBasenameOnly(), actual.getKey().isBasenameOnly());
+			assertEquals(expected.getKey().isLiteral(), actual.getKey().isLiteral());
+		}
+		GlobIndex jsonIndex = GlobIndex.of(fromJson.patterns());
+		GlobIndex compiledIndex = GlobIndex.of(fromIndex.patterns());
+		for (String path : List.of(".github/workflows/ci.yml", "charts/app/Chart.yaml", "docker-compose.yml",
+				"src/main/resources/application.yml", "README.md")) {
+			assertEquals(jsonIndex.match(path), compiledIndex.match(path), path);
+		}
+	}
+
+	@Test
+	void rejectsOtherContent() {
+		byte[] notAnIndex = "{\"schemas\": []}".getBytes(StandardCharsets.UTF_8);
+		assertThrows(IOException.class, () -> CatalogIndexFile.read(new ByteArrayInputStream(notAnIndex)));
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.alexmond.yaml.validator.catalog;
+
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentDetectorTest {
+
+	private static final String KUBERNETES = "https://raw.githubusercontent.com/yannh/kubernetes-json-schema/master/"
+			+ "master-standalone-strict/";
+
+	private static ContentDetector detector(int keys) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setContentDetect(true);
+		config.setContentDetectKeys(keys);
+		return new ContentDetector(config);
+	}
+
+	@Test
+	void detectsKubernetesManifestsByApiVersionAndKind() {
+		ContentDetector detector = detector(16);
+
+		assertEquals(KUBERNETES + "deployment-apps-v1.json",
+				detector.detect(Map.of("apiVersion", "apps/v1", "kind", "Deployment")));
+		assertEquals(KUBERNETES + "configmap-v1.json",
+				detector.detect(Map.of("apiVersion", "v1", "kind", "ConfigMap")));
+		assertEquals(KUBERNETES + "ingress-networking-v1.json",
+				detector.detect(Map.of("apiVersion", "networking.k8s.io/v1", "kind", "Ingress")));
+		assertNull(detector.detect(Map.of("apiVersion", "example.com/v1", "kind", "Widget")));
+		assertNull(detector.detect(Map.of("apiVersion", "apps/v1")));
+	}
+
+	@Test
+	void detectsApiDescriptionsByVersion() {
+		ContentDetector detector = detector(16);
+
+		assertEquals("https://spec.openapis.org/oas/3.1/schema/2022-10-07",
+				detector.detect(Map.of("openapi", "3.1.0")));
+		assertEquals("https://spec.openapis.org/oas/3.0/schema/2021-09-28",
+				detector.detect(Map.of("openapi", "3.0.3")));
+		assertEquals("https://spec.openapis.org/oas/2.0/schema/2017-08-27", detector.detect(Map.of("swagger", "2.0")));
+		assertNull(detector.detect(Map.of("openapi", "4.0.0")));
+		assertNull(detector.detect(Map.of("name", "app")));
+	}
+
+	@Test
+	void isOffWithoutAutoDetect() {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setAutoDetect(false);
+		config.setContentDetect(true);
+
+		assertNull(new ContentDetector(config).detect(Map.of("openapi", "3.1.0")));
+	}
+
+	@Test
+	void isOffByDefault() {
+		ContentDetector detector = new ContentDetector(new YamlSchemaValidatorConfig());
+
+		assertFalse(detector.isEnabled());
+		assertNull(detector.detect(Map.of("apiVersion", "apps/v1", "kind", "Deployment")));
+	}
+
+}
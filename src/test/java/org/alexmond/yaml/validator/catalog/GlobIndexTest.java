@@ -0,0 +1,126 @@
+package org.alexmond.yaml.validator.catalog;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobIndexTest {
+
+	private static List<String> bundledPatterns() throws IOException {
+		try (InputStream is = GlobIndexTest.class.getResourceAsStream("/schema-catalog.json")) {
+			SchemaCatalog catalog = JsonMapper.builder().build().readValue(is, SchemaCatalog.class);
+			List<String> patterns = new ArrayList<>();
+			for (CatalogEntry entry : catalog.getSchemas()) {
+				if (entry.getUrl() != null && entry.getFileMatch() != null) {
+					patterns.addAll(entry.getFileMatch());
+				}
+			}
+			return patterns;
+		}
+	}
+
+	private static String linearScan(List<Map.Entry<GlobPattern, String>> globs, String path) {
+		String bestUrl = null;
+		int bestSpecificity = -1;
+		for (Map.Entry<GlobPattern, String> glob : globs) {
+			if (glob.getKey().specificity() > bestSpecificity && glob.getKey().matches(path)) {
+				bestSpecificity = glob.getKey().specificity();
+				bestUrl = glob.getValue();
+			}
+		}
+		return bestUrl;
+	}
+
+	private static List<Map.Entry<GlobPattern, String>> globs(String... patterns) {
+		List<Map.Entry<GlobPattern, String>> globs = new ArrayList<>();
+		for (String pattern : patterns) {
+			globs.add(Map.entry(GlobPattern.compile(pattern), pattern));
+		}
+		return globs;
+	}
+
+	@Test
+	void agreesWithLinearScanOnBundledCatalog() throws IOException {
+		List<String> patterns = bundledPatterns();
+		List<Map.Entry<GlobPattern, String>> globs = globs(patterns.toArray(String[]::new));
+		GlobIndex index = GlobIndex.of(globs);
+		List<String> paths = new ArrayList<>(List.of("README.md", "a/b/c.txt", "config.yml", "x.yaml", ""));
+		for (String pattern : patterns) {
+			String example = pattern.replace("**/", "a/b/").replace("**", "a/b").replace('*', 'x').replace('?', 'q');
+			paths.add(example);
+			paths.add("deep/nested/" + example);
+			paths.add("C:\\repo\\" + example.replace('/', '\\'));
+			paths.add(example + ".bak");
+			paths.add(example.substring(1));
+		}
+		for (String path : paths) {
+			assertEquals(linearScan(globs, path), index.match(path), path);
+		}
+	}
+
+	@Test
+	void prefersMostSpecificThenEarliestPattern() {
+		GlobIndex index = GlobIndex.of(globs("*.yml", "**/ci.yml", "**/workflows/*.yml", "**/workflows/??.yml"));
+
+		assertEquals("**/workflows/*.yml", index.match(".github/workflows/ci.yml"));
+		assertEquals("**/ci.yml", index.match("ci.yml"));
+		assertEquals("*.yml", index.match("other.yml"));
+		assertNull(index.match("other.yaml"));
+	}
+
+	@Test
+	void matchesPatternsEndingInWildcard() {
+		GlobIndex index = GlobIndex.of(globs("**/templates/*", "**/templates/**", "Dockerfile*", "*.txt"));
+
+		assertEquals("**/templates/**", index.match("chart/templates/sub/deploy.yaml"));
+		assertEquals("**/templates/*", index.match("chart\\templates\\deploy.yaml"));
+		assertEquals("Dockerfile*", index.match("Dockerfile.dev"));
+		assertEquals("Dockerfile*", index.match("Dockerfile.txt"));
+		assertEquals("*.txt", index.match("notes.txt"));
+	}
+
+	@Test
+	void answersRepeatedDirectoriesAndNamesFromMemory() {
+		GlobIndex index = GlobIndex.of(globs("**/workflows/*.yml", "values.yaml", "**/charts/*/values.yaml"));
+
+		assertEquals("**/workflows/*.yml", index.match(".github/workflows/ci.yml"));
+		assertEquals("**/workflows/*.yml", index.match(".github/workflows/release.yml"));
+		assertEquals("**/charts/*/values.yaml", index.match("charts/app/values.yaml"));
+		assertEquals("values.yaml", index.match("other/values.yaml"));
+		assertEquals("**/workflows/*.yml", index.match(".github\\workflows\\ci.yml"));
+
+		SchemaDetector.Statistics statistics = index.statistics();
+		assertEquals(5, statistics.lookups());
+		assertEquals(1, statistics.hits());
+	}
+
+	@Test
+	void agreesWithLinearScanUnderConcurrentLookups() throws IOException {
+		List<String> patterns = bundledPatterns();
+		List<Map.Entry<GlobPattern, String>> globs = globs(patterns.toArray(String[]::new));
+		GlobIndex index = GlobIndex.of(globs);
+		List<String> paths = new ArrayList<>();
+		for (String pattern : patterns) {
+			String example = pattern.replace("**/", "a/b/").replace("**", "a/b").replace('*', 'x').replace('?', 'q');
+			paths.add(example);
+			paths.add("repo/" + example);
+		}
+		List<String> expected = paths.stream().map((path) -> linearScan(globs, path)).toList();
+
+		IntStream.range(0, 4 * paths.size())
+			.parallel()
+			.forEach((i) -> assertEquals(expected.get(i % paths.size()), index.match(paths.get(i % paths.size()))));
+		assertTrue(index.statistics().hitRate() > 0.5);
+	}
+
+}
@@ -1,10 +1,24 @@
 package org.alexmond.yaml.validator.catalog;
 
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.YamlValidationException;
 import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.alexmond.yaml.validator.schema.SchemaBundle;
+import org.alexmond.yaml.validator.schema.SchemaDiskCache;
+import org.alexmond.yaml.validator.schema.SchemaFetcher;
+import org.alexmond.yaml.validator.schema.SchemaSnapshot;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -13,11 +27,19 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  */
 class SchemaDetectorTest {
 
+	@TempDir
+	Path cacheDir;
+
 	private SchemaDetector detector(boolean autoDetect) {
 		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
 		config.setAutoDetect(autoDetect);
 		config.setCatalogUrl("");
-		return new SchemaDetector(config, new SchemaCatalogLoader(config));
+		config.setWarmStart(false);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		return new SchemaDetector(config, new SchemaCatalogLoader(config, schemaFetcher,
+				new SchemaSnapshot(config, diskCache), new ValidationExecutor(config)), new ContentDetector(config));
 	}
 
 	@Test
@@ -44,6 +66,68 @@ class SchemaDetectorTest {
 		assertNull(detector(true).detect("some/random/file.txt"));
 	}
 
+	@Test
+	void fallsBackToBundledCatalogWhenHostIsUnreachable() {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setCatalogUrl("http://127.0.0.1:9/catalog.json");
+		config.setHttpTimeout(Duration.ofSeconds(30));
+		config.setWarmStart(false);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		SchemaDetector detector = new SchemaDetector(config, new SchemaCatalogLoader(config, schemaFetcher,
+				new SchemaSnapshot(config, diskCache), new ValidationExecutor(config)), new ContentDetector(config));
+
+		detector.preload();
+		long start = System.nanoTime();
+		assertNotNull(detector.detect("docker-compose.yml"));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(config.getHttpTimeout()) < 0);
+	}
+
+	@Test
+	void prefersProjectMappingsOverCatalog(@TempDir Path dir) throws IOException {
+		Path mappings = dir.resolve("mappings.yaml");
+		Files.writeString(mappings, """
+				schemas:
+				  - name: Compose override
+				    fileMatch: ["docker-compose.yml"]
+				    url: schemas/compose.json
+				  - fileMatch: ["**/deploy/*.yaml"]
+				    url: https://example.com/deploy.json
+				""");
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setAutoDetect(false);
+		config.setCatalogUrl("");
+		config.setWarmStart(false);
+		config.setSchemaMappings(mappings.toString());
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		SchemaDetector detector = new SchemaDetector(config, new SchemaCatalogLoader(config, schemaFetcher,
+				new SchemaSnapshot(config, diskCache), new ValidationExecutor(config)), new ContentDetector(config));
+
+		assertEquals(dir.resolve("schemas/compose.json").toString(), detector.detect("app/docker-compose.yml"));
+		assertEquals("https://example.com/deploy.json", detector.detect("env/deploy/app.yaml"));
+		assertNull(detector.detect(".github/workflows/ci.yml"));
+	}
+
+	@Test
+	void reportsUnreadableMappings(@TempDir Path dir) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setCatalogUrl("");
+		config.setWarmStart(false);
+		config.setSchemaMappings(dir.resolve("missing.json").toString());
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		SchemaFetcher schemaFetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+		SchemaDetector detector = new SchemaDetector(config, new SchemaCatalogLoader(config, schemaFetcher,
+				new SchemaSnapshot(config, diskCache), new ValidationExecutor(config)), new ContentDetector(config));
+
+		YamlValidationException ex = assertThrows(YamlValidationException.class,
+				() -> detector.detect("docker-compose.yml"));
+		assertTrue(ex.getMessage().contains("missing.json"), ex.getMessage());
+	}
+
 	@Test
 	void returnsNullWhenDisabled() {
 		assertNull(detector(false).detect(".github/workflows/ci.yml"));
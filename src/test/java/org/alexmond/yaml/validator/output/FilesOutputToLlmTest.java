@@ -6,10 +6,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.networknt.schema.output.OutputUnit;
+import org.alexmond.yaml.validator.TestValidators;
 import org.alexmond.yaml.validator.YamlSchemaValidator;
-import org.alexmond.yaml.validator.catalog.SchemaCatalogLoader;
-import org.alexmond.yaml.validator.catalog.SchemaDetector;
-import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import tools.jackson.databind.JsonNode;
@@ -23,6 +21,9 @@ class FilesOutputToLlmTest {
 
 	private final JsonMapper jsonMapper = JsonMapper.builder().build();
 
+	@TempDir
+	Path cacheDir;
+
 	@Test
 	void jsonReportHasSummaryAndFlatErrors() {
 		OutputUnit validUnit = new OutputUnit();
@@ -77,7 +78,8 @@ class FilesOutputToLlmTest {
 		Path doc = dir.resolve("bad.yaml");
 		Files.writeString(doc, "name: 42\n");
 
-		Map<String, OutputUnit> result = newValidator().validate(doc.toString(), schema.toString());
+		YamlSchemaValidator validator = TestValidators.validator(this.cacheDir);
+		Map<String, OutputUnit> result = validator.validate(doc.toString(), schema.toString());
 		String json = new FilesOutput(result).toLlmString(false);
 		JsonNode root = jsonMapper.readTree(json);
 
@@ -90,10 +92,4 @@ class FilesOutputToLlmTest {
 		assertTrue(errors.get(0).has("keyword"), json);
 	}
 
-	private YamlSchemaValidator newValidator() {
-		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
-		config.setAutoDetect(false);
-		return new YamlSchemaValidator(config, new SchemaDetector(config, new SchemaCatalogLoader(config)));
-	}
-
 }
@@ -0,0 +1,70 @@
+package org.alexmond.yaml.validator.schema;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectionTest {
+
+	private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+	private static Projection of(String schema) {
+		JsonNode schemaNode = MAPPER.readTree(schema);
+		return Projection.of(schemaNode);
+	}
+
+	@Test
+	void skipsPropertiesTheSchemaDoesNotConstrain() {
+		Projection projection = of("""
+				{"type": "object", "required": ["metadata"],
+				 "properties": {"metadata": {"properties": {"name": {"type": "string"}}}}}
+				""");
+
+		assertFalse(projection.isAll());
+		assertTrue(projection.property("data").isNone());
+		assertTrue(projection.property("metadata").property("labels").isNone());
+		assertFalse(projection.property("metadata").property("name").isNone());
+	}
+
+	@Test
+	void appliesAdditionalPropertiesToOtherNames() {
+		Projection closed = of("{\"properties\": {\"a\": {}}, \"additionalProperties\": false}");
+		Projection typed = of("{\"additionalProperties\": {\"type\": \"string\"}}");
+
+		assertTrue(closed.property("b").isNone());
+		assertFalse(typed.property("b").isNone());
+		assertTrue(typed.property("b").property("c").isNone());
+	}
+
+	@Test
+	void followsLocalReferencesAndApplicators() {
+		Projection projection = of("""
+				{"allOf": [{"$ref": "#/$defs/meta"}, {"properties": {"spec": {"type": "object"}}}],
+				 "$defs": {"meta": {"properties": {"metadata": {"const": {"name": "a"}}}}}}
+				""");
+
+		assertTrue(projection.property("metadata").isAll());
+		assertFalse(projection.property("spec").isNone());
+		assertTrue(projection.property("spec").property("replicas").isNone());
+		assertTrue(projection.property("status").isNone());
+	}
+
+	@Test
+	void keepsWholeWhatItDoesNotUnderstand() {
+		assertTrue(of("{\"unevaluatedProperties\": false}").isAll());
+		assertTrue(of("{\"properties\": {\"a\": {\"$ref\": \"other.json\"}}}").property("a").isAll());
+		assertTrue(of("{\"properties\": {\"child\": {\"$ref\": \"#\"}}}").property("child").isAll());
+	}
+
+	@Test
+	void keepsRequestedTopLevelProperty() {
+		Projection projection = of("{\"properties\": {\"a\": {}}}").keeping("$schema");
+
+		assertFalse(projection.property("$schema").isNone());
+		assertTrue(projection.property("b").isNone());
+	}
+
+}
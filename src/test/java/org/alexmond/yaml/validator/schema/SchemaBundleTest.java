@@ -0,0 +1,132 @@
+package org.alexmond.yaml.validator.schema;
+
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes and reads schema bundles without network access: the bundled URLs point at a
+ * closed local port and are served by a stub loader.
+ */
+class SchemaBundleTest {
+
+	private static final String ROOT = "http://127.0.0.1:9/root.json";
+
+	private static final String ITEM = "http://127.0.0.1:9/defs/item.json";
+
+	private static final byte[] ROOT_SCHEMA = "{\"$ref\": \"defs/item.json#/$defs/item\"}"
+		.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] ITEM_SCHEMA = "{\"$defs\": {\"item\": {\"type\": \"object\"}}}"
+		.getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path dir;
+
+	private static YamlSchemaValidatorConfig config(Path bundle) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setSchemaBundle(bundle.toString());
+		return config;
+	}
+
+	private static SchemaBundleWriter writer(Map<String, byte[]> documents) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		// load() is overridden, so the fetcher is never used
+		SchemaLoader loader = new SchemaLoader(null) {
+			@Override
+			public byte[] load(String schemaPath) {
+				byte[] content = documents.get(schemaPath);
+				if (content == null) {
+					throw new YamlValidationException("Not found: " + schemaPath, null, schemaPath);
+				}
+				return content;
+			}
+		};
+		return new SchemaBundleWriter(config, loader, null, new ValidationExecutor(config));
+	}
+
+	@Test
+	void bundlesTransitiveRefsIntoZip() throws IOException {
+		Path zip = this.dir.resolve("schemas.zip");
+		SchemaBundleWriter writer = writer(Map.of(ROOT, ROOT_SCHEMA, ITEM, ITEM_SCHEMA));
+		SchemaBundleWriter.Result result = writer.write(List.of(ROOT), zip);
+
+		assertEquals(2, result.documents());
+		assertTrue(result.failures().isEmpty());
+		SchemaBundle bundle = new SchemaBundle(config(zip));
+		assertArrayEquals(ROOT_SCHEMA, bundle.lookup(ROOT));
+		assertArrayEquals(ITEM_SCHEMA, bundle.lookup(ITEM + "#/$defs/item"));
+		assertNull(bundle.lookup("http://127.0.0.1:9/other.json"));
+	}
+
+	@Test
+	void bundlesIntoDirectoryAndReportsMissingRefs() throws IOException {
+		Path output = this.dir.resolve("schemas");
+		SchemaBundleWriter.Result result = writer(Map.of(ROOT, ROOT_SCHEMA)).write(List.of(ROOT), output);
+
+		assertEquals(1, result.documents());
+		assertEquals(List.of(ITEM), List.copyOf(result.failures().keySet()));
+		SchemaBundle bundle = new SchemaBundle(config(output));
+		assertArrayEquals(ROOT_SCHEMA, bundle.lookup(ROOT));
+		assertFalse(bundle.contains(ITEM));
+	}
+
+	@Test
+	void fetcherServesOnlyFromBundle() throws IOException {
+		Path zip = this.dir.resolve("schemas.zip");
+		writer(Map.of(ROOT, ROOT_SCHEMA, ITEM, ITEM_SCHEMA)).write(List.of(ROOT), zip);
+		YamlSchemaValidatorConfig config = config(zip);
+		config.setCacheDir(this.dir.resolve("cache").toString());
+		SchemaFetcher fetcher = new SchemaFetcher(config, new SchemaDiskCache(config), new SchemaBundle(config));
+
+		assertArrayEquals(ITEM_SCHEMA, fetcher.fetch(ITEM));
+		assertTrue(fetcher.isCached(ROOT));
+		YamlValidationException ex = assertThrows(YamlValidationException.class,
+				() -> fetcher.fetch("http://127.0.0.1:9/other.json"));
+		assertTrue(ex.getMessage().contains("not in the schema bundle"), ex.getMessage());
+	}
+
+	@Test
+	void missingBundleFailsEachFetchInsteadOfTheRun() {
+		YamlSchemaValidatorConfig config = config(this.dir.resolve("missing.zip"));
+		config.setCacheDir(this.dir.resolve("cache").toString());
+		SchemaFetcher fetcher = new SchemaFetcher(config, new SchemaDiskCache(config), new SchemaBundle(config));
+
+		assertFalse(fetcher.isCached(ROOT));
+		YamlValidationException ex = assertThrows(YamlValidationException.class, () -> fetcher.fetch(ROOT));
+		assertTrue(ex.getMessage().contains("Schema bundle not found"), ex.getMessage());
+	}
+
+	@Test
+	void indexesPlainDirectoryByIdAndRewrites() throws IOException {
+		Files.createDirectories(this.dir.resolve("vendor"));
+		Files.writeString(this.dir.resolve("renamed.yaml"), "$id: https://example.com/app.json\ntype: object\n");
+		Files.writeString(this.dir.resolve("vendor/item.json"), "{\"type\": \"string\"}");
+		YamlSchemaValidatorConfig config = config(this.dir);
+		config.setSchemaBundleRewrites(List.of("https://vendor.example.com/schemas/=vendor/"));
+		SchemaBundle bundle = new SchemaBundle(config);
+
+		assertTrue(new String(bundle.lookup("https://example.com/app.json"), StandardCharsets.UTF_8)
+			.contains("type: object"));
+		assertArrayEquals(Files.readAllBytes(this.dir.resolve("vendor/item.json")),
+				bundle.lookup("https://vendor.example.com/schemas/item.json"));
+		assertNull(bundle.lookup("https://vendor.example.com/schemas/missing.json"));
+	}
+
+}
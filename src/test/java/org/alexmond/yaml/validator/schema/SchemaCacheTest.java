@@ -0,0 +1,147 @@
+package org.alexmond.yaml.validator.schema;
+
+import com.networknt.schema.Schema;
+import org.alexmond.yaml.validator.ValidationExecutor;
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchemaCacheTest {
+
+	private static final byte[] SCHEMA = "{\"type\": \"object\"}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path cacheDir;
+
+	private SchemaCache newCache(SchemaLoader loader) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setWarmStart(false);
+		return new SchemaCache(loader, new ValidationExecutor(config),
+				new SchemaSnapshot(config, new SchemaDiskCache(config)));
+	}
+
+	@Test
+	void loadsEachSchemaOnce() {
+		CountingLoader loader = new CountingLoader(SCHEMA);
+		SchemaCache cache = newCache(loader);
+
+		Schema first = cache.get("schema.json");
+		Schema second = cache.get("schema.json");
+
+		assertSame(first, second);
+		assertEquals(1, loader.loads.get());
+		assertEquals(1, cache.stats().misses());
+		assertEquals(1, cache.stats().hits());
+	}
+
+	@Test
+	void concurrentCallersShareOneLoad() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountingLoader loader = new CountingLoader(SCHEMA) {
+			@Override
+			public byte[] load(String schemaPath) {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return super.load(schemaPath);
+			}
+		};
+		SchemaCache cache = newCache(loader);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Schema>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(pool.submit(() -> cache.get("schema.json")));
+			}
+			release.countDown();
+			Schema schema = futures.get(0).get();
+			for (Future<Schema> future : futures) {
+				assertSame(schema, future.get());
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, loader.loads.get());
+		assertEquals(4, cache.stats().hits() + cache.stats().misses());
+	}
+
+	@Test
+	void failedLoadIsNotCached() {
+		CountingLoader loader = new CountingLoader(null);
+		SchemaCache cache = newCache(loader);
+
+		assertThrows(YamlValidationException.class, () -> cache.get("missing.json"));
+		assertThrows(YamlValidationException.class, () -> cache.get("missing.json"));
+		assertEquals(2, loader.loads.get());
+	}
+
+	@Test
+	void prefetchesRemoteRefsBeforeReturningSchema() {
+		byte[] root = "{\"$ref\": \"https://example.com/item.json#/$defs/item\"}".getBytes(StandardCharsets.UTF_8);
+		byte[] item = "{\"$defs\": {\"item\": {\"$ref\": \"common.json\"}}}".getBytes(StandardCharsets.UTF_8);
+		byte[] common = "{\"type\": \"object\"}".getBytes(StandardCharsets.UTF_8);
+		Map<String, byte[]> documents = Map.of("root.json", root, "https://example.com/item.json", item,
+				"https://example.com/common.json", common);
+		List<String> requested = new CopyOnWriteArrayList<>();
+		SchemaLoader loader = new CountingLoader(null) {
+			@Override
+			public byte[] load(String schemaPath) {
+				requested.add(schemaPath);
+				return documents.get(schemaPath);
+			}
+		};
+
+		newCache(loader).get("root.json");
+
+		assertEquals(Set.of("root.json", "https://example.com/item.json", "https://example.com/common.json"),
+				Set.copyOf(requested));
+		assertEquals(3, requested.size());
+	}
+
+	private static class CountingLoader extends SchemaLoader {
+
+		private final AtomicInteger loads = new AtomicInteger();
+
+		private final byte[] content;
+
+		CountingLoader(byte[] content) {
+			// load() is overridden, so the fetcher is never used
+			super(null);
+			this.content = content;
+		}
+
+		@Override
+		public byte[] load(String schemaPath) {
+			this.loads.incrementAndGet();
+			if (this.content == null) {
+				throw new YamlValidationException("NoSuchFileException: " + schemaPath, null, schemaPath);
+			}
+			return this.content;
+		}
+
+	}
+
+}
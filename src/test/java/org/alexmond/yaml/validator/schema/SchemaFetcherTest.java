@@ -0,0 +1,184 @@
+package org.alexmond.yaml.validator.schema;
+
+import org.alexmond.yaml.validator.YamlValidationException;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the on-disk cache without network access: the URLs point at a closed local
+ * port, so any attempt to reach the server fails.
+ */
+class SchemaFetcherTest {
+
+	private static final String URL = "http://127.0.0.1:9/schema.json";
+
+	private static final byte[] BODY = "{\"type\": \"object\"}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path cacheDir;
+
+	private YamlSchemaValidatorConfig config() {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setHttpTimeout(Duration.ofSeconds(1));
+		return config;
+	}
+
+	@Test
+	void storesBodiesByContentHash() throws IOException {
+		SchemaDiskCache diskCache = new SchemaDiskCache(config());
+		diskCache.store(URL, BODY, "\"v1\"", null);
+		diskCache.store("http://127.0.0.1:9/copy.json", BODY, null, null);
+
+		SchemaDiskCache.Cached cached = diskCache.lookup(URL);
+		assertNotNull(cached);
+		assertArrayEquals(BODY, cached.body());
+		try (Stream<Path> blobs = Files.list(this.cacheDir.resolve("blobs"))) {
+			assertEquals(1, blobs.count(), "identical bodies share one blob");
+		}
+	}
+
+	@Test
+	void ignoresCorruptedBlob() throws IOException {
+		SchemaDiskCache diskCache = new SchemaDiskCache(config());
+		diskCache.store(URL, BODY, null, null);
+		try (Stream<Path> blobs = Files.list(this.cacheDir.resolve("blobs"))) {
+			Files.writeString(blobs.findFirst().orElseThrow(), "truncated");
+		}
+		assertNull(diskCache.lookup(URL));
+	}
+
+	@Test
+	void servesFreshEntryWithoutNetwork() {
+		YamlSchemaValidatorConfig config = config();
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		diskCache.store(URL, BODY, null, null);
+		assertArrayEquals(BODY, new SchemaFetcher(config, diskCache, new SchemaBundle(config)).fetch(URL));
+	}
+
+	@Test
+	void servesStaleEntryWhenServerIsUnreachable() {
+		YamlSchemaValidatorConfig config = config();
+		config.setCacheTtl(Duration.ZERO);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		diskCache.store(URL, BODY, null, null);
+		assertArrayEquals(BODY, new SchemaFetcher(config, diskCache, new SchemaBundle(config)).fetch(URL));
+	}
+
+	@Test
+	void offlineServesStaleEntryAndFailsOnMiss() {
+		YamlSchemaValidatorConfig config = config();
+		config.setCacheTtl(Duration.ZERO);
+		config.setOffline(true);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		diskCache.store(URL, BODY, null, null);
+		SchemaFetcher fetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+
+		assertArrayEquals(BODY, fetcher.fetch(URL));
+		YamlValidationException ex = assertThrows(YamlValidationException.class,
+				() -> fetcher.fetch("http://127.0.0.1:9/other.json"));
+		assertTrue(ex.getMessage().contains("Offline mode"), ex.getMessage());
+	}
+
+	@Test
+	void remembersFailedFetch() {
+		YamlSchemaValidatorConfig config = config();
+		SchemaFetcher fetcher = new SchemaFetcher(config, new SchemaDiskCache(config), new SchemaBundle(config));
+
+		YamlValidationException first = assertThrows(YamlValidationException.class, () -> fetcher.fetch(URL));
+		YamlValidationException second = assertThrows(YamlValidationException.class, () -> fetcher.fetch(URL));
+
+		assertFalse(first.getMessage().contains("cached failure"), first.getMessage());
+		assertTrue(second.getMessage().contains("cached failure"), second.getMessage());
+	}
+
+	@Test
+	void sharesFailureOfInFlightFetchWithoutCachedLabel() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			CountDownLatch accepted = new CountDownLatch(1);
+			Thread responder = new Thread(() -> {
+				try (Socket socket = server.accept()) {
+					accepted.countDown();
+					BufferedReader request = new BufferedReader(
+							new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+					for (String line = request.readLine(); line != null && !line.isEmpty(); line = request.readLine()) {
+						// Skip the request headers
+					}
+					// Answer late, so the second fetch waits on the first one
+					Thread.sleep(500);
+					socket.getOutputStream()
+						.write("HTTP/1.1 500 Server Error\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+							.getBytes(StandardCharsets.ISO_8859_1));
+				}
+				catch (IOException | InterruptedException ex) {
+					// The fetch fails either way
+				}
+			});
+			responder.setDaemon(true);
+			responder.start();
+			YamlSchemaValidatorConfig config = config();
+			SchemaFetcher fetcher = new SchemaFetcher(config, new SchemaDiskCache(config), new SchemaBundle(config));
+			String url = "http://127.0.0.1:" + server.getLocalPort() + "/schema.json";
+
+			CompletableFuture<YamlValidationException> first = CompletableFuture
+				.supplyAsync(() -> assertThrows(YamlValidationException.class, () -> fetcher.fetch(url)));
+			assertTrue(accepted.await(5, TimeUnit.SECONDS));
+			YamlValidationException waiter = assertThrows(YamlValidationException.class, () -> fetcher.fetch(url));
+			YamlValidationException later = assertThrows(YamlValidationException.class, () -> fetcher.fetch(url));
+
+			assertFalse(first.get().getMessage().contains("cached failure"), first.get().getMessage());
+			assertFalse(waiter.getMessage().contains("cached failure"), waiter.getMessage());
+			assertTrue(later.getMessage().contains("cached failure"), later.getMessage());
+		}
+	}
+
+	@Test
+	void retriesFailedFetchAfterTtl() {
+		YamlSchemaValidatorConfig config = config();
+		config.setFetchFailureTtl(Duration.ZERO);
+		SchemaFetcher fetcher = new SchemaFetcher(config, new SchemaDiskCache(config), new SchemaBundle(config));
+
+		assertThrows(YamlValidationException.class, () -> fetcher.fetch(URL));
+		YamlValidationException retried = assertThrows(YamlValidationException.class, () -> fetcher.fetch(URL));
+
+		assertFalse(retried.getMessage().contains("cached failure"), retried.getMessage());
+	}
+
+	@Test
+	void reportsUnreachableHostAndServesStaleCopy() {
+		YamlSchemaValidatorConfig config = config();
+		config.setCacheTtl(Duration.ZERO);
+		SchemaDiskCache diskCache = new SchemaDiskCache(config);
+		diskCache.store(URL, BODY, null, null);
+		SchemaFetcher fetcher = new SchemaFetcher(config, diskCache, new SchemaBundle(config));
+
+		assertFalse(fetcher.isReachable(URL, Duration.ofMillis(200)));
+		assertArrayEquals(BODY, fetcher.cachedCopy(URL));
+		assertNull(fetcher.cachedCopy("http://127.0.0.1:9/other.json"));
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.alexmond.yaml.validator.schema;
+
+import org.alexmond.yaml.validator.catalog.CatalogEntry;
+import org.alexmond.yaml.validator.catalog.SchemaCatalog;
+import org.alexmond.yaml.validator.config.YamlSchemaValidatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SchemaSnapshotTest {
+
+	private static final byte[] SCHEMA = "{\"type\": \"object\"}".getBytes(StandardCharsets.UTF_8);
+
+	private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+
+	@TempDir
+	Path cacheDir;
+
+	private final AtomicInteger parses = new AtomicInteger();
+
+	private final BiFunction<String, byte[], JsonNode> parser = (path, content) -> {
+		this.parses.incrementAndGet();
+		return JSON_MAPPER.readTree(content);
+	};
+
+	private SchemaSnapshot snapshot(boolean warmStart) {
+		YamlSchemaValidatorConfig config = new YamlSchemaValidatorConfig();
+		config.setCacheDir(this.cacheDir.toString());
+		config.setWarmStart(warmStart);
+		return new SchemaSnapshot(config, new SchemaDiskCache(config));
+	}
+
+	@Test
+	void reusesSchemaParsedByPreviousRun() {
+		SchemaSnapshot first = snapshot(true);
+		JsonNode parsed = first.schema("schema.json", SCHEMA, this.parser);
+		first.destroy();
+
+		JsonNode restored = snapshot(true).schema("schema.json", SCHEMA, this.parser);
+
+		assertEquals(parsed, restored);
+		assertEquals(1, this.parses.get());
+	}
+
+	@Test
+	void reparsesChangedSchema() {
+		SchemaSnapshot first = snapshot(true);
+		first.schema("schema.json", SCHEMA, this.parser);
+		first.destroy();
+
+		byte[] changed = "{\"type\": \"string\"}".getBytes(StandardCharsets.UTF_8);
+		JsonNode node = snapshot(true).schema("schema.json", changed, this.parser);
+
+		assertEquals("string", node.get("type").asString());
+		assertEquals(2, this.parses.get());
+	}
+
+	@Test
+	void dropsSchemasNotUsedByLastRun() {
+		SchemaSnapshot first = snapshot(true);
+		first.schema("a.json", SCHEMA, this.parser);
+		first.schema("b.json", SCHEMA, this.parser);
+		first.destroy();
+
+		SchemaSnapshot second = snapshot(true);
+		second.schema("a.json", SCHEMA, this.parser);
+		second.destroy();
+		assertEquals(2, this.parses.get());
+
+		SchemaSnapshot third = snapshot(true);
+		third.schema("a.json", SCHEMA, this.parser);
+		third.schema("b.json", SCHEMA, this.parser);
+
+		assertEquals(3, this.parses.get());
+	}
+
+	@Test
+	void keepsOnlyIndexOfCatalog() {
+		byte[] content = ("{\"schemas\": [{\"name\": \"Chart\", \"description\": \"Helm chart\","
+				+ " \"fileMatch\": [\"Chart.yaml\"], \"url\": \"https://example.com/chart.json\"}]}")
+			.getBytes(StandardCharsets.UTF_8);
+		AtomicInteger catalogParses = new AtomicInteger();
+		SchemaSnapshot first = snapshot(true);
+		first.catalog(content, (bytes) -> {
+			catalogParses.incrementAndGet();
+			return JSON_MAPPER.readValue(bytes, SchemaCatalog.class);
+		});
+		first.destroy();
+
+		SchemaCatalog catalog = snapshot(true).catalog(content, (bytes) -> {
+			catalogParses.incrementAndGet();
+			return JSON_MAPPER.readValue(bytes, SchemaCatalog.class);
+		});
+
+		assertEquals(1, catalogParses.get());
+		CatalogEntry entry = catalog.getSchemas().get(0);
+		assertEquals(List.of("Chart.yaml"), entry.getFileMatch());
+		assertEquals("https://example.com/chart.json", entry.getUrl());
+		assertNull(entry.getDescription());
+	}
+
+	@Test
+	void disabledSnapshotIsNeitherReadNorWritten() {
+		SchemaSnapshot disabled = snapshot(false);
+		disabled.schema("schema.json", SCHEMA, this.parser);
+		disabled.schema("schema.json", SCHEMA, this.parser);
+		disabled.destroy();
+
+		assertEquals(2, this.parses.get());
+		assertFalse(Files.exists(this.cacheDir.resolve(SchemaSnapshot.FILE_NAME)));
+	}
+
+}